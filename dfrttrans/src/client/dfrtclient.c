@@ -0,0 +1,144 @@
+#include <errno.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <sys/socket.h>
+#include <sys/un.h>
+#include <unistd.h>
+
+static int writeall(int fd, const void *buffer, size_t size) {
+    const char *data = buffer;
+
+    while (size > 0) {
+        ssize_t count = write(fd, data, size);
+
+        if (count < 0) {
+            if (errno == EINTR) continue;
+            return -1;
+        }
+
+        data += count;
+        size -= count;
+    }
+
+    return 0;
+}
+
+static int readall(int fd, void *buffer, size_t size) {
+    char *data = buffer;
+
+    while (size > 0) {
+        ssize_t count = read(fd, data, size);
+
+        if (count < 0) {
+            if (errno == EINTR) continue;
+            return -1;
+        }
+
+        if (count == 0) return -1;
+
+        data += count;
+        size -= count;
+    }
+
+    return 0;
+}
+
+static int writeint(int fd, uint32_t value) {
+    unsigned char data[4] = {value >> 24, value >> 16, value >> 8, value};
+    return writeall(fd, data, sizeof(data));
+}
+
+static int readint(int fd, uint32_t *value) {
+    unsigned char data[4];
+    if (readall(fd, data, sizeof(data))) return -1;
+    *value = (uint32_t) data[0] << 24 | (uint32_t) data[1] << 16 | (uint32_t) data[2] << 8 | data[3];
+    return 0;
+}
+
+static int writestring(int fd, const char *value) {
+    size_t length = strlen(value);
+    if (writeint(fd, length)) return -1;
+    return writeall(fd, value, length);
+}
+
+// no server to talk to, so do the job in a JVM of our own
+static void fallback(int argc, char **argv) {
+    const char *jar = getenv("DFRTTRANS");
+
+    if (jar == NULL) {
+        fprintf(stderr, "dfrtclient: no server and DFRTTRANS is not set\n");
+        exit(2);
+    }
+
+    char **args = calloc(argc + 4, sizeof(*args));
+
+    if (args == NULL) {
+        perror("dfrtclient");
+        exit(1);
+    }
+
+    args[0] = "java";
+    args[1] = "-jar";
+    args[2] = (char *) jar;
+    memcpy(&args[3], argv, argc * sizeof(*args));
+
+    execvp(args[0], args);
+    perror("dfrtclient: java");
+    exit(127);
+}
+
+int main(int argc, char **argv) {
+    if (argc < 2) {
+        fprintf(stderr, "usage: dfrtclient SOCKET [OPTION]... INPUT OUTPUT\n");
+        fprintf(stderr, "       dfrtclient SOCKET elfconvert [OPTION]... INPUT OUTPUT\n");
+        return 2;
+    }
+
+    struct sockaddr_un address = {.sun_family = AF_UNIX};
+
+    if (strlen(argv[1]) >= sizeof(address.sun_path)) fallback(argc - 2, argv + 2);
+    strcpy(address.sun_path, argv[1]);
+
+    int fd = socket(AF_UNIX, SOCK_STREAM, 0);
+
+    if (fd < 0 || connect(fd, (struct sockaddr *) &address, sizeof(address))) {
+        if (fd >= 0) close(fd);
+        fallback(argc - 2, argv + 2);
+    }
+
+    char *directory = getcwd(NULL, 0);
+
+    if (directory == NULL) {
+        perror("dfrtclient");
+        return 1;
+    }
+
+    if (writestring(fd, directory) || writeint(fd, argc - 2)) goto failed;
+
+    for (int i = 2; i < argc; i++) {
+        if (writestring(fd, argv[i])) goto failed;
+    }
+
+    uint32_t status, length;
+    if (readint(fd, &status) || readint(fd, &length)) goto failed;
+
+    while (length > 0) {
+        char buffer[4096];
+        size_t count = length < sizeof(buffer) ? length : sizeof(buffer);
+
+        if (readall(fd, buffer, count)) goto failed;
+        fwrite(buffer, 1, count, stdout);
+        length -= count;
+    }
+
+    fflush(stdout);
+    close(fd);
+    return status;
+
+failed:
+    fprintf(stderr, "dfrtclient: lost connection to %s\n", argv[1]);
+    close(fd);
+    return 1;
+}
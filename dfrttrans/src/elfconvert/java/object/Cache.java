@@ -0,0 +1,194 @@
+package object;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+
+public final class Cache {
+    public interface Job {
+        int run() throws IOException;
+    }
+
+    private record Entry(Path path, long size, FileTime time) {
+    }
+
+    private static final long LIMIT = 1L << 30;
+    private static byte[] toolHash;
+
+    private final Path directory;
+    private final boolean restat;
+
+    private Cache(Path directory, boolean restat) {
+        this.directory = directory;
+        this.restat = restat;
+    }
+
+    public static Cache open(Path base, String[] args, int count, PrintStream diagnostics) throws IOException {
+        String directory = null;
+        boolean restat = false;
+
+        for (int i = 0; i < count; i++) {
+            if (args[i].startsWith("--cache=")) directory = args[i].substring(8);
+            if (args[i].equals("--restat")) restat = true;
+        }
+
+        if (directory == null) return null;
+
+        if (toolHash() == null) {
+            diagnostics.printf("--cache=%s ignored: not running from a jar%n", directory);
+            return null;
+        }
+
+        var path = base.resolve(directory);
+        Files.createDirectories(path);
+        return new Cache(path, restat);
+    }
+
+    public static boolean isOption(String arg) {
+        return arg.startsWith("--cache=");
+    }
+
+    private static synchronized byte[] toolHash() throws IOException {
+        if (toolHash == null) {
+            try {
+                var location = Path.of(Cache.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+                if (!Files.isRegularFile(location)) return null;
+                toolHash = digest().digest(Files.readAllBytes(location));
+            } catch (URISyntaxException | SecurityException e) {
+                return null;
+            }
+        }
+
+        return toolHash;
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public static int run(Cache cache, String tool, String[] args, int count, Path input, Path output, Job job) throws IOException {
+        return cache != null ? cache.apply(tool, args, count, input, output, job) : job.run();
+    }
+
+    public int apply(String tool, String[] args, int count, Path input, Path output, Job job) throws IOException {
+        var digest = digest();
+        digest.update(toolHash());
+        digest.update(tool.getBytes(StandardCharsets.UTF_8));
+
+        for (int i = 0; i < count; i++) {
+            if (isOption(args[i]) || args[i].equals("--restat")) continue;
+            digest.update((byte) 0);
+            digest.update(args[i].getBytes(StandardCharsets.UTF_8));
+        }
+
+        digest.update((byte) 0);
+        digest.update(Files.readAllBytes(input));
+
+        var key = HexFormat.of().formatHex(digest.digest());
+        var entry = directory.resolve(key.substring(0, 2)).resolve(key);
+
+        try {
+            if (!Files.isRegularFile(output) || Files.mismatch(entry, output) >= 0) {
+                install(entry, output);
+            } else if (!restat) {
+                Files.setLastModifiedTime(output, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+
+            Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+            return 0;
+        } catch (NoSuchFileException ignored) {
+        }
+
+        int status = job.run();
+        if (status != 0) return status;
+
+        Files.createDirectories(entry.getParent());
+        install(output, entry);
+
+        if (account(Files.size(entry))) evict();
+        return 0;
+    }
+
+    // copied next to the target and renamed over it, so that neither a
+    // concurrent build nor an interrupted one sees a partial file
+    private static void install(Path source, Path target) throws IOException {
+        var temporary = Files.createTempFile(target.toAbsolutePath().getParent(), ".", ".tmp");
+
+        try {
+            Files.copy(source, temporary, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    // bytes stored since the last eviction are counted in the cache itself,
+    // so that builds running one process per file still evict now and then
+    private boolean account(long size) throws IOException {
+        synchronized (Cache.class) {
+            try (var channel = FileChannel.open(directory.resolve("stored"),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.CREATE)) {
+                var lock = channel.lock();
+
+                try {
+                    var buffer = ByteBuffer.allocate(Long.BYTES);
+                    long stored = (channel.read(buffer, 0) == Long.BYTES ? buffer.getLong(0) : 0) + size;
+                    boolean full = stored >= LIMIT / 16;
+
+                    buffer.putLong(0, full ? 0 : stored);
+                    channel.write(buffer.rewind(), 0);
+                    return full;
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    private void evict() throws IOException {
+        var entries = new ArrayList<Entry>();
+        long total = 0;
+
+        try (var buckets = Files.newDirectoryStream(directory)) {
+            for (var bucket : buckets) {
+                if (!Files.isDirectory(bucket)) continue;
+
+                try (var files = Files.newDirectoryStream(bucket)) {
+                    for (var file : files) {
+                        try {
+                            var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                            entries.add(new Entry(file, attributes.size(), attributes.lastModifiedTime()));
+                            total += attributes.size();
+                        } catch (NoSuchFileException ignored) {
+                        }
+                    }
+                }
+            }
+        }
+
+        if (total <= LIMIT) return;
+
+        entries.sort(Comparator.comparing(Entry::time));
+
+        for (var entry : entries) {
+            if (total <= LIMIT - LIMIT / 4) break;
+            Files.deleteIfExists(entry.path());
+            total -= entry.size();
+        }
+    }
+}
@@ -1,15 +1,122 @@
 package object;
 
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
 
 public class ElfConvert {
     public static void main(String[] args) throws IOException {
-        if (args.length != 2) {
-            System.err.println("usage: elfconvert INPUT OUTPUT");
+        if (args.length >= 1 && args[0].equals("--batch")) {
+            System.exit(batch(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        int count = options(args);
+
+        if (args.length != count + 2) {
+            System.err.println("usage: elfconvert [--gc-sections] [--keep=NAME]... [--rodata] [--restat] [--cache=DIR] INPUT OUTPUT");
+            System.err.println("       elfconvert --batch [--gc-sections] [--keep=NAME]... [--rodata] [--restat] [--cache=DIR] [INPUT OUTPUT | @FILE]...");
+            System.exit(2);
+        }
+
+        LoadOptions options;
+
+        try {
+            options = LoadOptions.parse(args, count);
+        } catch (IllegalArgumentException e) {
+            System.err.println("elfconvert: " + e.getMessage());
             System.exit(2);
+            return;
+        }
+
+        var cache = Cache.open(Path.of(""), args, count, System.err);
+        var input = args[count];
+        var output = args[count + 1];
+
+        Cache.run(cache, "elfconvert", args, count, Path.of(input), Path.of(output), () -> {
+            ObjectFile.loadElf(input, options).writeXloff(output, options.restat());
+            return 0;
+        });
+    }
+
+    public static int options(String[] args) {
+        int count = 0;
+
+        while (count < args.length && args[count].startsWith("--")) {
+            count += 1;
+        }
+
+        return count;
+    }
+
+    private static int batch(String[] args) throws IOException {
+        int count = options(args);
+        LoadOptions options;
+
+        try {
+            options = LoadOptions.parse(args, count);
+        } catch (IllegalArgumentException e) {
+            System.err.println("elfconvert: " + e.getMessage());
+            return 2;
+        }
+
+        var cache = Cache.open(Path.of(""), args, count, System.err);
+        var files = new ArrayList<String>();
+
+        for (var arg : Arrays.copyOfRange(args, count, args.length)) {
+            if (arg.startsWith("@")) {
+                for (var word : Files.readString(Path.of(arg.substring(1))).split("\\s+")) {
+                    if (!word.isEmpty()) files.add(word);
+                }
+            } else {
+                files.add(arg);
+            }
+        }
+
+        if (files.size() % 2 != 0) {
+            System.err.println("elfconvert: batch inputs and outputs must come in pairs");
+            return 2;
+        }
+
+        var jobs = new ArrayList<Callable<String>>();
+
+        for (int i = 0; i < files.size(); i += 2) {
+            var input = files.get(i);
+            var output = files.get(i + 1);
+
+            jobs.add(() -> {
+                try {
+                    Cache.run(cache, "elfconvert", args, count, Path.of(input), Path.of(output), () -> {
+                        ObjectFile.loadElf(input, options).writeXloff(output, options.restat());
+                        return 0;
+                    });
+
+                    return null;
+                } catch (IOException | RuntimeException e) {
+                    return "%s: %s".formatted(input, e);
+                }
+            });
+        }
+
+        int status = 0;
+
+        try (var pool = new ForkJoinPool()) {
+            for (var future : pool.invokeAll(jobs)) {
+                var error = future.get();
+
+                if (error != null) {
+                    System.err.println(error);
+                    status = 1;
+                }
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
         }
 
-        ObjectFile object = ObjectFile.loadElf(args[0]);
-        object.writeXloff(args[1]);
+        return status;
     }
 }
@@ -1,6 +1,6 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record ElfHeader(byte[] identification, int type, int machine, int version, int entry, int segmentsOffset,
                         int sectionsOffset, int flags, int headerSize, int segmentSize, int segmentCount,
@@ -31,9 +31,21 @@ public record ElfHeader(byte[] identification, int type, int machine, int versio
         }
     }
 
-    public ElfHeader(LittleEndian.Input input) throws IOException {
-        this(input.readBytes(16), input.read16(), input.read16(), input.read32(), input.read32(), input.read32(),
-                input.read32(), input.read32(), input.read16(), input.read16(), input.read16(), input.read16(),
-                input.read16(), input.read16());
+    public static final int SIZE = 52;
+
+    public ElfHeader(ByteBuffer buffer) {
+        this(identification(buffer), Short.toUnsignedInt(buffer.getShort(16)), Short.toUnsignedInt(buffer.getShort(18)),
+                buffer.getInt(20), buffer.getInt(24), buffer.getInt(28), buffer.getInt(32), buffer.getInt(36),
+                Short.toUnsignedInt(buffer.getShort(40)), Short.toUnsignedInt(buffer.getShort(42)),
+                Short.toUnsignedInt(buffer.getShort(44)), Short.toUnsignedInt(buffer.getShort(46)),
+                Short.toUnsignedInt(buffer.getShort(48)), Short.toUnsignedInt(buffer.getShort(50)));
+    }
+
+    private static byte[] identification(ByteBuffer buffer) {
+        if (buffer.limit() < SIZE) throw new IllegalArgumentException("truncated header");
+
+        var identification = new byte[16];
+        buffer.get(0, identification);
+        return identification;
     }
 }
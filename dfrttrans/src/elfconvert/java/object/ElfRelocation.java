@@ -1,10 +1,10 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record ElfRelocation(int offset, int info) implements ElfRelocationBase {
-    public ElfRelocation(LittleEndian.Input input) throws IOException {
-        this(input.read32(), input.read32());
+    public ElfRelocation(ByteBuffer buffer, int offset) {
+        this(buffer.getInt(offset), buffer.getInt(offset + 4));
     }
 
     @Override
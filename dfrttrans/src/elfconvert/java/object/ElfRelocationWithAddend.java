@@ -1,10 +1,10 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record ElfRelocationWithAddend(int offset, int info, int addend) implements ElfRelocationBase {
-    public ElfRelocationWithAddend(LittleEndian.Input input) throws IOException {
-        this(input.read32(), input.read32(), input.read32());
+    public ElfRelocationWithAddend(ByteBuffer buffer, int offset) {
+        this(buffer.getInt(offset), buffer.getInt(offset + 4), buffer.getInt(offset + 8));
     }
 
     @Override
@@ -1,6 +1,6 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record ElfSection(int name, int type, int flags, int address, int offset, int size, int link, int info,
                          int addressAlignment, int entrySize) {
@@ -14,9 +14,12 @@ public record ElfSection(int name, int type, int flags, int address, int offset,
     public static final int SHF_WRITE = 1;
     public static final int SHF_ALLOC = 2;
     public static final int SHF_EXECINSTR = 4;
+    public static final int SHF_MERGE = 0x10;
+    public static final int SHF_STRINGS = 0x20;
 
-    public ElfSection(LittleEndian.Input input) throws IOException {
-        this(input.read32(), input.read32(), input.read32(), input.read32(), input.read32(), input.read32(),
-                input.read32(), input.read32(), input.read32(), input.read32());
+    public ElfSection(ByteBuffer buffer, int offset) {
+        this(buffer.getInt(offset), buffer.getInt(offset + 4), buffer.getInt(offset + 8), buffer.getInt(offset + 12),
+                buffer.getInt(offset + 16), buffer.getInt(offset + 20), buffer.getInt(offset + 24),
+                buffer.getInt(offset + 28), buffer.getInt(offset + 32), buffer.getInt(offset + 36));
     }
 }
@@ -1,13 +1,16 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record ElfSymbol(int name, int value, int size, int info, int other, int section) {
     public static final int STB_LOCAL = 0;
     public static final int STB_GLOBAL = 1;
+    public static final int STT_SECTION = 3;
 
-    public ElfSymbol(LittleEndian.Input input) throws IOException {
-        this(input.read32(), input.read32(), input.read32(), input.read8(), input.read8(), input.read16());
+    public ElfSymbol(ByteBuffer buffer, int offset) {
+        this(buffer.getInt(offset), buffer.getInt(offset + 4), buffer.getInt(offset + 8),
+                Byte.toUnsignedInt(buffer.get(offset + 12)), Byte.toUnsignedInt(buffer.get(offset + 13)),
+                Short.toUnsignedInt(buffer.getShort(offset + 14)));
     }
 
     public int bind() {
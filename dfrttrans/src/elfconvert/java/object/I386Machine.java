@@ -1,6 +1,8 @@
 package object;
 
 public class I386Machine implements Machine {
+    private static final int ELF_RELOC_386_PC32 = 2;
+    private static final int ELF_RELOC_386_PLT32 = 4;
     private static final int ELF_RELOC_386_16 = 20;
     private static final int ELF_RELOC_386_PC16 = 21;
     private static final int ELF_RELOC_386_8 = 22;
@@ -22,4 +24,10 @@ public class I386Machine implements Machine {
     public int translateElfRelocType(int type) {
         return type;
     }
+
+    @Override
+    public boolean isElfRelocPcRelative(int type) {
+        return type == ELF_RELOC_386_PC32 || type == ELF_RELOC_386_PLT32
+                || type == ELF_RELOC_386_PC16 || type == ELF_RELOC_386_PC8;
+    }
 }
@@ -1,7 +1,7 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public interface LoadFunction<T> {
-    T load(LittleEndian.Input input) throws IOException;
+    T load(ByteBuffer buffer, int offset);
 }
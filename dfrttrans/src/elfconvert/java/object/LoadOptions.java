@@ -0,0 +1,31 @@
+package object;
+
+import java.util.HashSet;
+import java.util.Set;
+
+public record LoadOptions(Set<String> keep, boolean rodata, boolean restat) {
+    public static final LoadOptions DEFAULT = new LoadOptions(null, false, false);
+
+    public static LoadOptions parse(String[] args, int count) {
+        boolean gcSections = false;
+        boolean rodata = false;
+        boolean restat = false;
+        var keep = new HashSet<String>();
+
+        for (int i = 0; i < count; i++) {
+            if (args[i].equals("--gc-sections")) {
+                gcSections = true;
+            } else if (args[i].equals("--rodata")) {
+                rodata = true;
+            } else if (args[i].equals("--restat")) {
+                restat = true;
+            } else if (args[i].startsWith("--keep=")) {
+                keep.add(args[i].substring(7));
+            } else if (!Cache.isOption(args[i])) {
+                throw new IllegalArgumentException("unknown option '%s'".formatted(args[i]));
+            }
+        }
+
+        return new LoadOptions(gcSections ? keep : null, rodata, restat);
+    }
+}
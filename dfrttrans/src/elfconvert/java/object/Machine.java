@@ -7,6 +7,8 @@ public interface Machine {
 
     int translateElfRelocType(int type);
 
+    boolean isElfRelocPcRelative(int type);
+
     static Machine getFromElfCode(int code) {
         return switch (code) {
             case ElfHeader.EM_386 -> new I386Machine();
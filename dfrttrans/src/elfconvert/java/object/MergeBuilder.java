@@ -0,0 +1,91 @@
+package object;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+public final class MergeBuilder {
+    public record Key(boolean strings, int entrySize, int alignment) {
+    }
+
+    public record Piece(MergeBuilder builder, int[] starts, int[] entries) {
+        public int map(int offset) {
+            int i = Arrays.binarySearch(starts, offset);
+            if (i < 0) i = Math.max(-i - 2, 0);
+            return builder.offsets[entries[i]] + offset - starts[i];
+        }
+    }
+
+    private final Key key;
+    private final StringTable entries = new StringTable();
+    private final BitSet used = new BitSet();
+    private byte[] constants = new byte[0];
+    private int[] offsets = new int[0];
+
+    public MergeBuilder(Key key) {
+        this.key = key;
+    }
+
+    public static boolean canMerge(Key key, byte[] data, int size) {
+        if (size <= 0 || key.entrySize() <= 0) return false;
+        if (key.strings()) return key.entrySize() == 1 && data[size - 1] == 0;
+        return size % key.entrySize() == 0;
+    }
+
+    public Piece add(byte[] data, int size) {
+        var starts = new int[16];
+        var indices = new int[16];
+        int count = 0;
+        int position = 0;
+
+        while (position < size) {
+            int end = position + key.entrySize();
+
+            if (key.strings()) {
+                end = position;
+                while (data[end] != 0) end += 1;
+            }
+
+            if (count == starts.length) {
+                starts = Arrays.copyOf(starts, count * 2);
+                indices = Arrays.copyOf(indices, count * 2);
+            }
+
+            starts[count] = position;
+            indices[count++] = add(data, position, end - position);
+            position = key.strings() ? align(end + 1) : end;
+        }
+
+        return new Piece(this, Arrays.copyOf(starts, count), Arrays.copyOf(indices, count));
+    }
+
+    private int add(byte[] data, int offset, int length) {
+        int index = entries.add(data, offset, length);
+        used.set(index);
+
+        if (!key.strings() && index >= offsets.length) {
+            int stride = align(key.entrySize());
+            offsets = Arrays.copyOf(offsets, index + 1);
+            offsets[index] = index * stride;
+            constants = Arrays.copyOf(constants, (index + 1) * stride);
+            System.arraycopy(data, offset, constants, index * stride, length);
+        }
+
+        return index;
+    }
+
+    public int alignment() {
+        return key.alignment();
+    }
+
+    private int align(int value) {
+        return (value + key.alignment() - 1) / key.alignment() * key.alignment();
+    }
+
+    public byte[] build() {
+        if (!key.strings()) return constants;
+
+        var merged = entries.merge(used, key.alignment());
+        offsets = merged.offsets();
+        return merged.data();
+    }
+}
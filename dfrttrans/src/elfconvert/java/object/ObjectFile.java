@@ -1,51 +1,68 @@
 package object;
 
 import java.io.*;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Set;
+
+public record ObjectFile(Machine machine, List<Section> sections, SymbolTable symbols, StringTable strings) {
+    private static final String RODATA_PREFIX = ".rodata$";
+
+    public Symbol symbol(int index) {
+        return new Symbol(this, index);
+    }
 
-public record ObjectFile(Machine machine, List<Section> sections, List<Symbol> symbols) {
     public void writeXloff(String path) throws IOException {
-        var stringTable = new LinkedHashMap<String, Integer>();
+        writeXloff(path, false);
+    }
+
+    // a byte-identical output is never rewritten, but by default its mtime
+    // still moves: make keeps rerunning a rule whose target stays older than
+    // its inputs. only a build system that re-stats outputs after running a
+    // rule (ninja's restat = 1) can stop there, so only --restat leaves the
+    // mtime alone and cuts the rebuild off at an unchanged file
+    public void writeXloff(String path, boolean restat) throws IOException {
+        var used = new BitSet();
         int headerSize = XloffHeader.SIZE;
-        int stringTableSize = 0;
         int sectionTableSize = sections.size() * XloffSection.SIZE;
         int symbolTableSize = symbols.size() * XloffSymbol.SIZE;
         int totalRelocsSize = 0;
         int entrySymbol = -1;
 
-        for (var section : sections) {
-            if (!stringTable.containsKey(section.name())) {
-                stringTable.put(section.name(), stringTableSize);
-                stringTableSize += section.name().getBytes(StandardCharsets.UTF_8).length + 1;
-            }
+        int startName = strings.find("_start");
 
+        for (var section : sections) {
+            used.set(section.name());
             totalRelocsSize += section.relocations().size() * XloffRelocation.SIZE;
         }
 
-        for (int i = 0, symbolsSize = symbols.size(); i < symbolsSize; i++) {
-            var symbol = symbols.get(i);
-
-            if (symbol.name() != null && !stringTable.containsKey(symbol.name())) {
-                stringTable.put(symbol.name(), stringTableSize);
-                stringTableSize += symbol.name().getBytes(StandardCharsets.UTF_8).length + 1;
-            }
+        for (int i = 0; i < symbols.size(); i++) {
+            int name = symbols.name(i);
 
-            if (symbol.name() != null && symbol.name().equals("_start")) {
-                entrySymbol = i;
-            }
+            if (name >= 0) used.set(name);
+            if (name >= 0 && name == startName) entrySymbol = i;
         }
 
+        var stringTable = strings.merge(used);
+        int stringTableSize = stringTable.data().length;
+
         int sectionTableOffset = headerSize;
         int symbolTableOffset = sectionTableOffset + sectionTableSize;
         int relocsOffset = symbolTableOffset + symbolTableSize;
         int stringTableOffset = relocsOffset + totalRelocsSize;
-        int paddingOffset = stringTableOffset + stringTableSize;
-        int dataOffset = (paddingOffset + 3) & -4;
-        int paddingSize = dataOffset - paddingOffset;
+        int dataOffset = (stringTableOffset + stringTableSize + 3) & -4;
 
         var header = new XloffHeader(XloffHeader.MAGIC,
                 symbolTableOffset, symbols.size(),
@@ -55,73 +72,110 @@ public record ObjectFile(Machine machine, List<Section> sections, List<Symbol> s
                 0, 0,
                 dataOffset);
 
-        try (var stream = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path)))) {
-            var output = new LittleEndian.Output(stream);
-            header.write(output);
+        var head = ByteBuffer.allocate(dataOffset).order(ByteOrder.LITTLE_ENDIAN);
+        var buffers = new ArrayList<ByteBuffer>();
+        buffers.add(head);
+        header.write(head);
 
-            for (var section : sections) {
-                int flags = XloffSection.MAP;
+        for (var section : sections) {
+            int flags = XloffSection.MAP;
 
-                if (section.data() == null) flags |= XloffSection.BSS;
-                if (!section.writable() && !section.executable()) flags |= XloffSection.READONLY;
-                if (section.executable()) flags |= XloffSection.TEXT;
+            if (section.data() == null) flags |= XloffSection.BSS;
+            if (!section.writable() && !section.executable()) flags |= XloffSection.READONLY;
+            if (section.executable()) flags |= XloffSection.TEXT;
 
-                var xloff = new XloffSection(stringTable.get(section.name()), dataOffset, section.size(),
-                        section.address(), relocsOffset, section.relocations().size(), flags);
-                xloff.write(output);
+            var xloff = new XloffSection(stringTable.offsets()[section.name()], dataOffset, section.size(),
+                    section.address(), relocsOffset, section.relocations().size(), flags);
+            xloff.write(head);
 
-                if (section.data() != null) dataOffset += section.size();
-                relocsOffset += section.relocations().size() * XloffRelocation.SIZE;
+            if (section.data() != null) {
+                buffers.add(ByteBuffer.wrap(section.data()));
+                dataOffset += section.size();
             }
 
-            for (var symbol : symbols) {
-                int nameOffset = symbol.name() != null ? stringTable.get(symbol.name()) : -1;
-                int section = symbol.section() != null ? symbol.section().index() : -1;
-                int type = switch (symbol.type()) {
-                    case GLOBAL -> XloffSymbol.GLOBAL;
-                    case LOCAL -> XloffSymbol.LOCAL;
-                    case EXTERN -> XloffSymbol.EXTERN;
-                    case SPECIAL -> XloffSymbol.SPECIAL;
-                };
-
-                var xloff = new XloffSymbol(nameOffset, symbol.value(), section, type, 0);
-                xloff.write(output);
-            }
+            relocsOffset += section.relocations().size() * XloffRelocation.SIZE;
+        }
 
-            for (var section : sections) {
-                for (var reloc : section.relocations()) {
-                    var xloff = new XloffRelocation(reloc.offset(), reloc.symbol().index(), reloc.addend(), reloc.type(), section.index());
-                    xloff.write(output);
-                }
-            }
+        for (int i = 0; i < symbols.size(); i++) {
+            var symbol = symbol(i);
+            int nameOffset = symbol.name() >= 0 ? stringTable.offsets()[symbol.name()] : -1;
+            int section = symbol.section() != null ? symbol.section().index() : -1;
+            int type = switch (symbol.type()) {
+                case GLOBAL -> XloffSymbol.GLOBAL;
+                case LOCAL -> XloffSymbol.LOCAL;
+                case EXTERN -> XloffSymbol.EXTERN;
+                case SPECIAL -> XloffSymbol.SPECIAL;
+            };
+
+            var xloff = new XloffSymbol(nameOffset, symbol.value(), section, type, 0);
+            xloff.write(head);
+        }
 
-            for (var str : stringTable.keySet()) {
-                output.writeBytes(str.getBytes(StandardCharsets.UTF_8));
-                output.write8(0);
+        for (var section : sections) {
+            for (int i = 0; i < section.relocations().size(); i++) {
+                var reloc = section.relocations().get(i);
+                var xloff = new XloffRelocation(reloc.offset(), reloc.symbol(), reloc.addend(), reloc.type(), section.index());
+                xloff.write(head);
             }
+        }
+
+        head.put(stringTable.data());
 
-            if (paddingSize != 0) {
-                output.writeBytes(new byte[paddingSize]);
+        head.clear();
+
+        var data = buffers.toArray(ByteBuffer[]::new);
+        if (isUnchanged(Path.of(path), data, dataOffset)) {
+            if (!restat) Files.setLastModifiedTime(Path.of(path), FileTime.fromMillis(System.currentTimeMillis()));
+            return;
+        }
+
+        try (var channel = FileChannel.open(Path.of(path), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            long remaining = dataOffset;
+
+            while (remaining > 0) {
+                remaining -= channel.write(data);
             }
+        }
+    }
 
-            for (var section : sections) {
-                if (section.data() != null) {
-                    output.writeBytes(section.data());
-                }
+    private static boolean isUnchanged(Path path, ByteBuffer[] data, long size) throws IOException {
+        if (!Files.isRegularFile(path) || Files.size(path) != size) return false;
+
+        var existing = Files.readAllBytes(path);
+        int position = 0;
+
+        for (var buffer : data) {
+            int start = buffer.arrayOffset() + buffer.position();
+            int length = buffer.remaining();
+
+            if (!Arrays.equals(existing, position, Math.min(position + length, existing.length), buffer.array(), start, start + length)) {
+                return false;
             }
+
+            position += length;
         }
+
+        return position == existing.length;
     }
 
     public static ObjectFile loadElf(String path) throws IOException {
+        return loadElf(path, LoadOptions.DEFAULT);
+    }
+
+    public static ObjectFile loadElf(String path, LoadOptions options) throws IOException {
         ObjectFile object;
         Section textSection = null;
+        Section rodataSection = null;
         Section dataSection = null;
         Section bssSection = null;
-        var specialSymbols = new HashMap<String, Symbol>();
+        var specialSymbols = new HashMap<Integer, Integer>();
+        var builders = new IdentityHashMap<Section, SectionBuilder>();
+        var mergeBuilders = new LinkedHashMap<MergeBuilder.Key, MergeBuilder>();
+        var namedSections = new HashMap<Integer, Section>();
 
-        try (var file = new RandomAccessFile(path, "r")) {
-            var input = new LittleEndian.Input(file);
-            var header = new ElfHeader(input);
+        try (var channel = FileChannel.open(Path.of(path))) {
+            var file = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()).order(ByteOrder.LITTLE_ENDIAN);
+            var header = new ElfHeader(file);
 
             if (header.type() != ElfHeader.ET_REL) {
                 throw new IllegalArgumentException("not a relocatable object");
@@ -129,81 +183,127 @@ public record ObjectFile(Machine machine, List<Section> sections, List<Symbol> s
 
             var machine = Machine.getFromElfCode(header.machine());
 
-            object = new ObjectFile(machine, new ArrayList<>(), new ArrayList<>());
+            object = new ObjectFile(machine, new ArrayList<>(), new SymbolTable(), new StringTable());
+            var strings = object.strings();
+            int textName = strings.add("text");
+            int rodataName = options.rodata() ? strings.add("rodata") : -1;
+            int dataName = strings.add("data");
+            int bssName = strings.add("bss");
 
             var elfSections = new ElfSection[header.sectionCount()];
 
             for (var i = 0; i < elfSections.length; i++) {
-                file.seek(header.sectionsOffset() + (long) i * header.sectionSize());
-                elfSections[i] = new ElfSection(input);
+                elfSections[i] = new ElfSection(file, header.sectionsOffset() + i * header.sectionSize());
             }
 
             var sectionNameData = loadData(elfSections[header.sectionNamesSection()], file);
 
             var sectionMap = new Section[header.sectionCount()];
             var sectionOffsets = new int[header.sectionCount()];
+            var sectionPieces = new MergeBuilder.Piece[header.sectionCount()];
+            var hasRelocs = new boolean[header.sectionCount()];
             ElfSection symbolTable = null;
             int symbolTableIndex = -1;
             var relocSections = new ArrayList<ElfSection>();
 
+            for (var i = 0; i < elfSections.length; i++) {
+                switch (elfSections[i].type()) {
+                    case ElfSection.SHT_SYMTAB -> {
+                        if (symbolTable != null) throw new IllegalArgumentException("multiple symbol tables");
+                        symbolTable = elfSections[i];
+                        symbolTableIndex = i;
+                    }
+                    case ElfSection.SHT_REL, ElfSection.SHT_RELA -> {
+                        relocSections.add(elfSections[i]);
+                        hasRelocs[elfSections[i].info()] = true;
+                    }
+                }
+            }
+
+            var live = options.keep() != null
+                    ? findLiveSections(file, elfSections, sectionNameData, symbolTable, relocSections, options.keep()) : null;
+
             for (var i = 0; i < elfSections.length; i++) {
                 var elfSection = elfSections[i];
 
                 switch (elfSection.type()) {
                     case ElfSection.SHT_PROGBITS, ElfSection.SHT_NOBITS -> {
                         if ((elfSection.flags() & ElfSection.SHF_ALLOC) == 0 || elfSection.size() <= 0) continue;
+                        if (live != null && !live[i]) continue;
 
                         byte[] data;
                         int size = (elfSection.size() + 3) & -4;
 
                         if (elfSection.type() != ElfSection.SHT_NOBITS) {
                             data = new byte[size];
-                            file.seek(elfSection.offset());
-                            file.readFully(data);
+                            file.get(elfSection.offset(), data);
                         } else {
                             data = null;
                         }
 
-                        var name = new String(sectionNameData, elfSection.name(), stringLength(sectionNameData, elfSection.name()), StandardCharsets.UTF_8)
-                                .intern();
-
+                        int nameOffset = elfSection.name();
+                        int nameLength = stringLength(sectionNameData, nameOffset);
                         var executable = (elfSection.flags() & ElfSection.SHF_EXECINSTR) != 0;
                         var writable = (elfSection.flags() & ElfSection.SHF_WRITE) != 0;
                         Section section = null;
                         int offset = 0;
+                        int name;
 
-                        if (name.equals(".text") || name.startsWith(".text.") || name.equals(".rodata") || name.startsWith(".rodata.")) {
-                            name = "text";
-
-                            if (textSection != null) section = textSection;
-                        } else if (name.equals(".data") || name.startsWith(".data.")) {
-                            name = "data";
-
-                            if (dataSection != null) section = dataSection;
-                        } else if (name.equals(".bss") || name.startsWith(".bss.")) {
-                            name = "bss";
+                        if (startsWith(sectionNameData, nameOffset, nameLength, RODATA_PREFIX)) {
+                            nameOffset += RODATA_PREFIX.length();
+                            nameLength -= RODATA_PREFIX.length();
+                        }
 
-                            if (bssSection != null) section = bssSection;
+                        if (isSection(sectionNameData, nameOffset, nameLength, ".text")
+                                || (rodataName < 0 && isSection(sectionNameData, nameOffset, nameLength, ".rodata"))) {
+                            name = textName;
+                            section = textSection;
+                        } else if (isSection(sectionNameData, nameOffset, nameLength, ".rodata")) {
+                            name = rodataName;
+                            section = rodataSection;
+                            executable = false;
+                            writable = false;
+                        } else if (isSection(sectionNameData, nameOffset, nameLength, ".data")) {
+                            name = dataName;
+                            section = dataSection;
+                        } else if (isSection(sectionNameData, nameOffset, nameLength, ".bss")) {
+                            name = bssName;
+                            section = bssSection;
+                        } else {
+                            name = strings.add(sectionNameData, nameOffset, nameLength);
+                            if (name != textName && name != rodataName && name != dataName && name != bssName) section = namedSections.get(name);
                         }
 
-                        if (name.endsWith("text")) {
+                        if (strings.endsWith(name, "text")) {
                             executable = true;
                             writable = false;
                             if (data == null) data = new byte[size];
                         }
 
-                        if (name.endsWith("data")) {
+                        if (strings.endsWith(name, "data") && name != rodataName) {
                             executable = false;
                             writable = true;
                             if (data == null) data = new byte[size];
                         }
 
-                        if (name.endsWith("bss")) {
+                        if (strings.endsWith(name, "bss")) {
                             executable = false;
                             writable = true;
                             data = null;
                         }
 
+                        if ((name == textName || name == rodataName) && elfSection.type() == ElfSection.SHT_PROGBITS
+                                && (elfSection.flags() & ElfSection.SHF_MERGE) != 0 && !hasRelocs[i]) {
+                            var key = new MergeBuilder.Key((elfSection.flags() & ElfSection.SHF_STRINGS) != 0,
+                                    elfSection.entrySize(), Math.max(elfSection.addressAlignment(), 1));
+
+                            if (MergeBuilder.canMerge(key, data, elfSection.size())) {
+                                sectionPieces[i] = mergeBuilders.computeIfAbsent(key, MergeBuilder::new).add(data, elfSection.size());
+                                size = 0;
+                                data = new byte[0];
+                            }
+                        }
+
                         if (section == null) {
                             section = new Section(
                                     name,
@@ -212,95 +312,101 @@ public record ObjectFile(Machine machine, List<Section> sections, List<Symbol> s
                                     data,
                                     writable,
                                     executable,
-                                    new ArrayList<>(),
                                     object.sections().size(),
                                     object
                             );
 
                             object.sections().add(section);
-                            specialSymbols.put(section.startSym.name(), section.startSym);
-                            specialSymbols.put(section.sizeSym.name(), section.sizeSym);
-                            specialSymbols.put(section.endSym.name(), section.endSym);
-
-                            switch (name) {
-                                case "text" -> textSection = section;
-                                case "data" -> dataSection = section;
-                                case "bss" -> bssSection = section;
-                            }
-                        } else {
-                            offset = section.size();
-
-                            if (elfSection.addressAlignment() != 0) {
-                                offset = (offset + elfSection.addressAlignment() - 1) & -elfSection.addressAlignment();
-                            }
-
-                            int newSize = offset + size;
-                            byte[] newData = null;
-
-                            if (section.data() != null) {
-                                newData = new byte[newSize];
-                                System.arraycopy(section.data(), 0, newData, 0, section.size());
-                                if (data != null) System.arraycopy(data, 0, newData, offset, size);
-                            }
-
-                            section.setData(newSize, newData);
+                            addSpecialSymbols(object, section, specialSymbols);
+
+                            if (name == textName) textSection = section;
+                            if (name == rodataName) rodataSection = section;
+                            if (name == dataName) dataSection = section;
+                            if (name == bssName) bssSection = section;
+                            if (name != textName && name != rodataName && name != dataName && name != bssName) namedSections.put(name, section);
+                        } else if (sectionPieces[i] == null) {
+                            offset = builders.computeIfAbsent(section, SectionBuilder::new)
+                                    .append(data, size, elfSection.addressAlignment());
                         }
 
                         sectionMap[i] = section;
                         sectionOffsets[i] = offset;
                     }
-                    case ElfSection.SHT_SYMTAB -> {
-                        if (symbolTable != null) throw new IllegalArgumentException("multiple symbol tables");
-                        symbolTable = elfSection;
-                        symbolTableIndex = i;
+                }
+            }
+
+            for (var mergeBuilder : mergeBuilders.values()) {
+                var data = mergeBuilder.build();
+                data = Arrays.copyOf(data, (data.length + 3) & -4);
+                Section section = null;
+                int offset = 0;
+
+                for (var i = 0; i < sectionPieces.length; i++) {
+                    if (sectionPieces[i] == null || sectionPieces[i].builder() != mergeBuilder) continue;
+
+                    if (section == null) {
+                        section = sectionMap[i];
+                        offset = builders.computeIfAbsent(section, SectionBuilder::new)
+                                .append(data, data.length, mergeBuilder.alignment());
                     }
-                    case ElfSection.SHT_REL, ElfSection.SHT_RELA -> relocSections.add(elfSection);
+
+                    sectionMap[i] = section;
+                    sectionOffsets[i] = offset;
                 }
             }
 
+            for (var entry : builders.entrySet()) {
+                entry.getValue().build(entry.getKey());
+            }
+
             if (textSection == null) {
-                var section = new Section("text", 0, 0, new byte[0], false, true, new ArrayList<>(), object.sections().size(), object);
+                var section = new Section(textName, 0, 0, new byte[0], false, true, object.sections().size(), object);
                 object.sections().add(section);
-                specialSymbols.put(section.startSym.name(), section.startSym);
-                specialSymbols.put(section.sizeSym.name(), section.sizeSym);
-                specialSymbols.put(section.endSym.name(), section.endSym);
+                addSpecialSymbols(object, section, specialSymbols);
+            }
+
+            if (rodataName >= 0 && rodataSection == null) {
+                var section = new Section(rodataName, 0, 0, new byte[0], false, false, object.sections().size(), object);
+                object.sections().add(section);
+                addSpecialSymbols(object, section, specialSymbols);
             }
 
             if (dataSection == null) {
-                var section = new Section("data", 0, 0, new byte[0], true, false, new ArrayList<>(), object.sections().size(), object);
+                var section = new Section(dataName, 0, 0, new byte[0], true, false, object.sections().size(), object);
                 object.sections().add(section);
-                specialSymbols.put(section.startSym.name(), section.startSym);
-                specialSymbols.put(section.sizeSym.name(), section.sizeSym);
-                specialSymbols.put(section.endSym.name(), section.endSym);
+                addSpecialSymbols(object, section, specialSymbols);
             }
 
             if (bssSection == null) {
-                var section = new Section("bss", 0, 0, null, true, false, new ArrayList<>(), object.sections().size(), object);
+                var section = new Section(bssName, 0, 0, null, true, false, object.sections().size(), object);
                 object.sections().add(section);
-                specialSymbols.put(section.startSym.name(), section.startSym);
-                specialSymbols.put(section.sizeSym.name(), section.sizeSym);
-                specialSymbols.put(section.endSym.name(), section.endSym);
+                addSpecialSymbols(object, section, specialSymbols);
             }
 
-            Symbol[] symbolMap;
+            int[] symbolMap;
+            MergeBuilder.Piece[] symbolPieces;
+            int[] symbolValues;
 
             if (symbolTable != null) {
-                symbolMap = new Symbol[symbolTable.size() / symbolTable.entrySize()];
+                symbolMap = new int[symbolTable.size() / symbolTable.entrySize()];
+                symbolPieces = new MergeBuilder.Piece[symbolMap.length];
+                symbolValues = new int[symbolMap.length];
+                Arrays.fill(symbolMap, -1);
                 var symbolNameData = loadData(elfSections[symbolTable.link()], file);
 
                 for (var i = 0; i < symbolMap.length; i++) {
-                    file.seek(symbolTable.offset() + (long) i * symbolTable.entrySize());
-                    var elfSymbol = new ElfSymbol(input);
+                    var elfSymbol = new ElfSymbol(file, symbolTable.offset() + i * symbolTable.entrySize());
 
                     Symbol.Type type;
-                    Section section;
+                    int section;
                     int offset;
+                    int value = elfSymbol.value();
 
                     if (elfSymbol.section() == ElfSection.SHN_UNDEF) {
                         if (elfSymbol.bind() == ElfSymbol.STB_LOCAL) continue;
 
                         type = Symbol.Type.EXTERN;
-                        section = null;
+                        section = -1;
                         offset = 0;
                     } else if (elfSymbol.section() != ElfSection.SHN_ABS) {
                         if (elfSymbol.bind() == ElfSymbol.STB_LOCAL) {
@@ -309,23 +415,35 @@ public record ObjectFile(Machine machine, List<Section> sections, List<Symbol> s
                             type = Symbol.Type.GLOBAL;
                         }
 
-                        section = sectionMap[elfSymbol.section()];
-                        if (section == null) continue;
+                        if (sectionMap[elfSymbol.section()] == null) continue;
+                        section = sectionMap[elfSymbol.section()].index();
                         offset = sectionOffsets[elfSymbol.section()];
+
+                        var piece = sectionPieces[elfSymbol.section()];
+
+                        if (piece != null) {
+                            value = piece.map(value);
+
+                            if (elfSymbol.type() == ElfSymbol.STT_SECTION) {
+                                symbolPieces[i] = piece;
+                                symbolValues[i] = elfSymbol.value();
+                            }
+                        }
                     } else {
                         continue;
                     }
 
-                    var name = new String(symbolNameData, elfSymbol.name(), stringLength(symbolNameData, elfSymbol.name()), StandardCharsets.UTF_8)
-                            .intern();
-
-                    Symbol symbol = specialSymbols.get(name);
+                    int nameLength = stringLength(symbolNameData, elfSymbol.name());
+                    Integer symbol = specialSymbols.get(strings.find(symbolNameData, elfSymbol.name(), nameLength));
 
                     if (symbol == null) {
-                        if (elfSymbol.name() == 0 || type == Symbol.Type.LOCAL) name = null;
+                        int name = -1;
 
-                        symbol = new Symbol(name, elfSymbol.value() + offset, section, type, object.symbols().size());
-                        object.symbols().add(symbol);
+                        if (elfSymbol.name() != 0 && type != Symbol.Type.LOCAL) {
+                            name = strings.add(symbolNameData, elfSymbol.name(), nameLength);
+                        }
+
+                        symbol = object.symbols().add(name, value + offset, section, type);
                     } else if (type != Symbol.Type.EXTERN) {
                         throw new IllegalArgumentException("tried to redefine special symbol");
                     }
@@ -333,7 +451,9 @@ public record ObjectFile(Machine machine, List<Section> sections, List<Symbol> s
                     symbolMap[i] = symbol;
                 }
             } else {
-                symbolMap = new Symbol[0];
+                symbolMap = new int[0];
+                symbolPieces = new MergeBuilder.Piece[0];
+                symbolValues = new int[0];
             }
 
             for (var relocSection : relocSections) {
@@ -349,13 +469,34 @@ public record ObjectFile(Machine machine, List<Section> sections, List<Symbol> s
                 var numRelocs = relocSection.size() / relocSection.entrySize();
 
                 for (var i = 0; i < numRelocs; i++) {
-                    file.seek(relocSection.offset() + (long) i * relocSection.entrySize());
-
-                    var reloc = loadFunc.load(input);
+                    var reloc = loadFunc.load(file, relocSection.offset() + i * relocSection.entrySize());
                     var symbol = symbolMap[reloc.symbol()];
-                    if (symbol == null) throw new IllegalArgumentException("no symbol for relocation");
+                    if (symbol < 0) throw new IllegalArgumentException("no symbol for relocation");
+
+                    int addend = reloc.addend(section.data(), offset, machine);
+                    var piece = symbolPieces[reloc.symbol()];
 
-                    section.relocations().add(new Relocation(reloc.offset() + offset, symbol, reloc.addend(section.data(), offset, machine), machine.translateElfRelocType(reloc.type())));
+                    if (piece != null) {
+                        int value = symbolValues[reloc.symbol()];
+                        addend = piece.map(value + addend) - piece.map(value);
+                    }
+
+                    // the assembler already resolves these within one input section, so this
+                    // only matters for objects with several input sections merged into one
+                    if (machine.isElfRelocPcRelative(reloc.type()) && section.data() != null
+                            && object.symbols().type(symbol) == Symbol.Type.LOCAL
+                            && object.symbols().section(symbol) == section.index()) {
+                        int position = reloc.offset() + offset;
+                        int value = object.symbols().value(symbol) + addend - position;
+
+                        for (int j = 0; j < machine.getElfRelocSize(reloc.type()); j++) {
+                            section.data()[position + j] = (byte) (value >> (j * 8));
+                        }
+
+                        continue;
+                    }
+
+                    section.relocations().add(reloc.offset() + offset, symbol, addend, machine.translateElfRelocType(reloc.type()));
                 }
             }
         }
@@ -363,13 +504,117 @@ public record ObjectFile(Machine machine, List<Section> sections, List<Symbol> s
         return object;
     }
 
-    private static byte[] loadData(ElfSection section, RandomAccessFile file) throws IOException {
-        file.seek(section.offset());
+    private static boolean isMergeable(byte[] data, int offset, int length) {
+        return isSection(data, offset, length, ".text") || isSection(data, offset, length, ".rodata")
+                || isSection(data, offset, length, ".data") || isSection(data, offset, length, ".bss");
+    }
+
+    private static boolean[] findLiveSections(ByteBuffer file, ElfSection[] elfSections, byte[] sectionNameData,
+                                              ElfSection symbolTable, List<ElfSection> relocSections, Set<String> keep) {
+        var live = new boolean[elfSections.length];
+        var pending = new int[elfSections.length];
+        int pendingCount = 0;
+
+        for (var i = 0; i < elfSections.length; i++) {
+            var elfSection = elfSections[i];
+            int nameLength = stringLength(sectionNameData, elfSection.name());
+
+            if ((elfSection.flags() & ElfSection.SHF_ALLOC) != 0 && !isMergeable(sectionNameData, elfSection.name(), nameLength)) {
+                live[i] = true;
+                pending[pendingCount++] = i;
+            }
+        }
+
+        if (symbolTable == null) return live;
+
+        var roots = new StringTable();
+        roots.add("_start");
+        keep.forEach(roots::add);
+
+        var symbolNameData = loadData(elfSections[symbolTable.link()], file);
+        var symbolSections = new int[symbolTable.size() / symbolTable.entrySize()];
+
+        for (var i = 0; i < symbolSections.length; i++) {
+            var elfSymbol = new ElfSymbol(file, symbolTable.offset() + i * symbolTable.entrySize());
+            int section = elfSymbol.section();
+
+            if (section == ElfSection.SHN_UNDEF || section >= elfSections.length) {
+                symbolSections[i] = -1;
+                continue;
+            }
+
+            symbolSections[i] = section;
+
+            if (!live[section] && (elfSymbol.bind() != ElfSymbol.STB_LOCAL
+                    || roots.find(symbolNameData, elfSymbol.name(), stringLength(symbolNameData, elfSymbol.name())) >= 0)) {
+                live[section] = true;
+                pending[pendingCount++] = section;
+            }
+        }
+
+        var relocsFor = new ElfSection[elfSections.length];
+
+        for (var relocSection : relocSections) {
+            if (relocsFor[relocSection.info()] != null) {
+                throw new IllegalArgumentException("multiple relocation sections for one section");
+            }
+
+            relocsFor[relocSection.info()] = relocSection;
+        }
+
+        while (pendingCount > 0) {
+            var relocSection = relocsFor[pending[--pendingCount]];
+            if (relocSection == null) continue;
+
+            LoadFunction<? extends ElfRelocationBase> loadFunc = (relocSection.type() == ElfSection.SHT_RELA)
+                    ? ElfRelocationWithAddend::new : ElfRelocation::new;
+            var numRelocs = relocSection.size() / relocSection.entrySize();
+
+            for (var i = 0; i < numRelocs; i++) {
+                int section = symbolSections[loadFunc.load(file, relocSection.offset() + i * relocSection.entrySize()).symbol()];
+
+                if (section >= 0 && !live[section]) {
+                    live[section] = true;
+                    pending[pendingCount++] = section;
+                }
+            }
+        }
+
+        return live;
+    }
+
+    private static void addSpecialSymbols(ObjectFile object, Section section, HashMap<Integer, Integer> specialSymbols) {
+        specialSymbols.put(object.symbols().name(section.startSym), section.startSym);
+        specialSymbols.put(object.symbols().name(section.sizeSym), section.sizeSym);
+        specialSymbols.put(object.symbols().name(section.endSym), section.endSym);
+    }
+
+    private static byte[] loadData(ElfSection section, ByteBuffer file) {
         var data = new byte[section.size()];
-        file.readFully(data);
+        file.get(section.offset(), data);
         return data;
     }
 
+    private static boolean startsWith(byte[] data, int offset, int length, String prefix) {
+        if (length < prefix.length()) return false;
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (data[offset + i] != prefix.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
+    private static boolean isSection(byte[] data, int offset, int length, String prefix) {
+        if (length < prefix.length() || (length > prefix.length() && data[offset + prefix.length()] != '.')) return false;
+
+        for (int i = 0; i < prefix.length(); i++) {
+            if (data[offset + i] != prefix.charAt(i)) return false;
+        }
+
+        return true;
+    }
+
     private static int stringLength(byte[] data, int offset) {
         int length = 0;
         while (data[offset + length] != 0) length += 1;
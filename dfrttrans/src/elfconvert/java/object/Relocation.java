@@ -1,4 +1,19 @@
 package object;
 
-public record Relocation(int offset, Symbol symbol, int addend, int type) {
+public record Relocation(RelocationTable table, int index) {
+    public int offset() {
+        return table.offset(index);
+    }
+
+    public int symbol() {
+        return table.symbol(index);
+    }
+
+    public int addend() {
+        return table.addend(index);
+    }
+
+    public int type() {
+        return table.type(index);
+    }
 }
@@ -0,0 +1,50 @@
+package object;
+
+import java.util.Arrays;
+
+public final class RelocationTable {
+    private int[] offsets = new int[16];
+    private int[] symbols = new int[16];
+    private int[] addends = new int[16];
+    private int[] types = new int[16];
+    private int count;
+
+    public int add(int offset, int symbol, int addend, int type) {
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+            symbols = Arrays.copyOf(symbols, count * 2);
+            addends = Arrays.copyOf(addends, count * 2);
+            types = Arrays.copyOf(types, count * 2);
+        }
+
+        offsets[count] = offset;
+        symbols[count] = symbol;
+        addends[count] = addend;
+        types[count] = type;
+        return count++;
+    }
+
+    public Relocation get(int index) {
+        return new Relocation(this, index);
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int offset(int index) {
+        return offsets[index];
+    }
+
+    public int symbol(int index) {
+        return symbols[index];
+    }
+
+    public int addend(int index) {
+        return addends[index];
+    }
+
+    public int type(int index) {
+        return types[index];
+    }
+}
@@ -0,0 +1,45 @@
+package object;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class SectionBuilder {
+    private record Piece(int offset, byte[] data) {
+    }
+
+    private final List<Piece> pieces = new ArrayList<>();
+    private final boolean hasData;
+    private int size;
+
+    public SectionBuilder(Section section) {
+        this.hasData = section.data() != null;
+        this.size = section.size();
+        pieces.add(new Piece(0, section.data()));
+    }
+
+    public int append(byte[] data, int size, int alignment) {
+        int offset = this.size;
+
+        if (alignment != 0) {
+            offset = (offset + alignment - 1) & -alignment;
+        }
+
+        pieces.add(new Piece(offset, data));
+        this.size = offset + size;
+        return offset;
+    }
+
+    public void build(Section section) {
+        byte[] data = null;
+
+        if (hasData) {
+            data = new byte[size];
+
+            for (var piece : pieces) {
+                if (piece.data() != null) System.arraycopy(piece.data(), 0, data, piece.offset(), piece.data().length);
+            }
+        }
+
+        section.setData(size, data);
+    }
+}
@@ -0,0 +1,158 @@
+package object;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+
+public final class StringTable {
+    public record Merged(int[] offsets, byte[] data) {
+    }
+
+    private byte[] bytes = new byte[1024];
+    private int length;
+    private int[] starts = new int[64];
+    private int[] lengths = new int[64];
+    private int count;
+    private int[] slots = new int[128];
+
+    public StringTable() {
+        Arrays.fill(slots, -1);
+    }
+
+    private static int hash(byte[] data, int offset, int length) {
+        int hash = 0;
+
+        for (int i = offset; i < offset + length; i++) {
+            hash = hash * 31 + (data[i] & 0xff);
+        }
+
+        return hash ^ (hash >>> 16);
+    }
+
+    private boolean matches(int index, byte[] data, int offset, int length) {
+        return lengths[index] == length
+                && Arrays.equals(bytes, starts[index], starts[index] + length, data, offset, offset + length);
+    }
+
+    public int find(byte[] data, int offset, int length) {
+        int mask = slots.length - 1;
+
+        for (int slot = hash(data, offset, length) & mask; slots[slot] >= 0; slot = (slot + 1) & mask) {
+            if (matches(slots[slot], data, offset, length)) return slots[slot];
+        }
+
+        return -1;
+    }
+
+    public int find(String text) {
+        var data = text.getBytes(StandardCharsets.UTF_8);
+        return find(data, 0, data.length);
+    }
+
+    public boolean endsWith(int index, String suffix) {
+        var data = suffix.getBytes(StandardCharsets.UTF_8);
+        int end = starts[index] + lengths[index];
+        return lengths[index] >= data.length && Arrays.equals(bytes, end - data.length, end, data, 0, data.length);
+    }
+
+    public int add(byte[] data, int offset, int length) {
+        int index = find(data, offset, length);
+        if (index >= 0) return index;
+
+        if (count == starts.length) {
+            starts = Arrays.copyOf(starts, count * 2);
+            lengths = Arrays.copyOf(lengths, count * 2);
+        }
+
+        if (this.length + length > bytes.length) {
+            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, this.length + length));
+        }
+
+        System.arraycopy(data, offset, bytes, this.length, length);
+        starts[count] = this.length;
+        lengths[count] = length;
+        this.length += length;
+        index = count++;
+
+        if (count * 2 > slots.length) {
+            slots = new int[slots.length * 2];
+            Arrays.fill(slots, -1);
+
+            for (int i = 0; i < count; i++) place(i);
+        } else {
+            place(index);
+        }
+
+        return index;
+    }
+
+    public int add(String text) {
+        var data = text.getBytes(StandardCharsets.UTF_8);
+        return add(data, 0, data.length);
+    }
+
+    public int add(String prefix, int name, String suffix) {
+        var head = prefix.getBytes(StandardCharsets.UTF_8);
+        var tail = suffix.getBytes(StandardCharsets.UTF_8);
+        var data = new byte[head.length + lengths[name] + tail.length];
+        System.arraycopy(head, 0, data, 0, head.length);
+        System.arraycopy(bytes, starts[name], data, head.length, lengths[name]);
+        System.arraycopy(tail, 0, data, head.length + lengths[name], tail.length);
+        return add(data, 0, data.length);
+    }
+
+    private void place(int index) {
+        int mask = slots.length - 1;
+        int slot = hash(bytes, starts[index], lengths[index]) & mask;
+
+        while (slots[slot] >= 0) slot = (slot + 1) & mask;
+
+        slots[slot] = index;
+    }
+
+    private int compareReversed(int a, int b) {
+        int endA = starts[a] + lengths[a];
+        int endB = starts[b] + lengths[b];
+        int common = Math.min(lengths[a], lengths[b]);
+
+        for (int i = 1; i <= common; i++) {
+            int difference = (bytes[endA - i] & 0xff) - (bytes[endB - i] & 0xff);
+            if (difference != 0) return difference;
+        }
+
+        return lengths[a] - lengths[b];
+    }
+
+    public Merged merge(BitSet used) {
+        return merge(used, 1);
+    }
+
+    public Merged merge(BitSet used, int alignment) {
+        var order = used.stream().boxed().sorted(this::compareReversed).toArray(Integer[]::new);
+        var offsets = new int[count];
+        var data = new byte[length + order.length * alignment];
+        int size = 0;
+        int previous = -1;
+
+        Arrays.fill(offsets, -1);
+
+        for (int i = order.length - 1; i >= 0; i--) {
+            int index = order[i];
+            int tail = previous >= 0 ? offsets[previous] + lengths[previous] - lengths[index] : -1;
+
+            if (previous >= 0 && lengths[index] <= lengths[previous] && tail % alignment == 0
+                    && Arrays.equals(bytes, starts[index], starts[index] + lengths[index],
+                    bytes, starts[previous] + lengths[previous] - lengths[index], starts[previous] + lengths[previous])) {
+                offsets[index] = tail;
+            } else {
+                size = (size + alignment - 1) / alignment * alignment;
+                System.arraycopy(bytes, starts[index], data, size, lengths[index]);
+                offsets[index] = size;
+                size += lengths[index] + 1;
+                previous = index;
+            }
+        }
+
+        return new Merged(offsets, Arrays.copyOf(data, size));
+    }
+}
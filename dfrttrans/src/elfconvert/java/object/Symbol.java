@@ -1,6 +1,6 @@
 package object;
 
-public record Symbol(String name, int value, Section section, Type type, int index) {
+public record Symbol(ObjectFile object, int index) {
     public static final int SPECIALVALUE_START = 1;
     public static final int SPECIALVALUE_SIZE = 2;
     public static final int SPECIALVALUE_END = 3;
@@ -11,4 +11,21 @@ public record Symbol(String name, int value, Section section, Type type, int ind
         EXTERN,
         SPECIAL,
     }
+
+    public int name() {
+        return object.symbols().name(index);
+    }
+
+    public int value() {
+        return object.symbols().value(index);
+    }
+
+    public Section section() {
+        int section = object.symbols().section(index);
+        return section >= 0 ? object.sections().get(section) : null;
+    }
+
+    public Type type() {
+        return object.symbols().type(index);
+    }
 }
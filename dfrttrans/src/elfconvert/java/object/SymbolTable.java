@@ -0,0 +1,48 @@
+package object;
+
+import java.util.Arrays;
+
+public final class SymbolTable {
+    private static final Symbol.Type[] TYPES = Symbol.Type.values();
+
+    private int[] names = new int[64];
+    private int[] values = new int[64];
+    private int[] sections = new int[64];
+    private byte[] types = new byte[64];
+    private int count;
+
+    public int add(int name, int value, int section, Symbol.Type type) {
+        if (count == names.length) {
+            names = Arrays.copyOf(names, count * 2);
+            values = Arrays.copyOf(values, count * 2);
+            sections = Arrays.copyOf(sections, count * 2);
+            types = Arrays.copyOf(types, count * 2);
+        }
+
+        names[count] = name;
+        values[count] = value;
+        sections[count] = section;
+        types[count] = (byte) type.ordinal();
+        return count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public int name(int index) {
+        return names[index];
+    }
+
+    public int value(int index) {
+        return values[index];
+    }
+
+    public int section(int index) {
+        return sections[index];
+    }
+
+    public Symbol.Type type(int index) {
+        return TYPES[types[index]];
+    }
+}
@@ -1,6 +1,6 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record XloffHeader(int magic, int symbolTableOffset, int symbolCount, int stringTableOffset, int stringTableSize,
                           int targetArchitecture, int entrySymbol, int flags, int timestamp, int sectionTableOffset,
@@ -14,20 +14,20 @@ public record XloffHeader(int magic, int symbolTableOffset, int symbolCount, int
         if (magic != MAGIC) throw new IllegalArgumentException("incorrect magic number");
     }
 
-    public void write(LittleEndian.Output output) throws IOException {
-        output.write32(magic);
-        output.write32(symbolTableOffset);
-        output.write32(symbolCount);
-        output.write32(stringTableOffset);
-        output.write32(stringTableSize);
-        output.write32(targetArchitecture);
-        output.write32(entrySymbol);
-        output.write32(flags);
-        output.write32(timestamp);
-        output.write32(sectionTableOffset);
-        output.write32(sectionCount);
-        output.write32(importTableOffset);
-        output.write32(importCount);
-        output.write32(headLength);
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(magic);
+        buffer.putInt(symbolTableOffset);
+        buffer.putInt(symbolCount);
+        buffer.putInt(stringTableOffset);
+        buffer.putInt(stringTableSize);
+        buffer.putInt(targetArchitecture);
+        buffer.putInt(entrySymbol);
+        buffer.putInt(flags);
+        buffer.putInt(timestamp);
+        buffer.putInt(sectionTableOffset);
+        buffer.putInt(sectionCount);
+        buffer.putInt(importTableOffset);
+        buffer.putInt(importCount);
+        buffer.putInt(headLength);
     }
 }
@@ -1,15 +1,15 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record XloffRelocation(int offset, int symbol, int addend, int type, int section) {
     public static final int SIZE = 16;
 
-    public void write(LittleEndian.Output output) throws IOException {
-        output.write32(offset);
-        output.write32(symbol);
-        output.write32(addend);
-        output.write16(type);
-        output.write16(section);
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(offset);
+        buffer.putInt(symbol);
+        buffer.putInt(addend);
+        buffer.putShort((short) type);
+        buffer.putShort((short) section);
     }
 }
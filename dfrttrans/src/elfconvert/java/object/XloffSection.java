@@ -1,6 +1,6 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record XloffSection(int nameOffset, int dataOffset, int dataSize, int virtualAddress, int relocTableOffset,
                            int relocCount, int flags) {
@@ -10,13 +10,13 @@ public record XloffSection(int nameOffset, int dataOffset, int dataSize, int vir
     public static final int READONLY = 16;
     public static final int SIZE = 28;
 
-    public void write(LittleEndian.Output output) throws IOException {
-        output.write32(nameOffset);
-        output.write32(dataOffset);
-        output.write32(dataSize);
-        output.write32(virtualAddress);
-        output.write32(relocTableOffset);
-        output.write32(relocCount);
-        output.write32(flags);
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(nameOffset);
+        buffer.putInt(dataOffset);
+        buffer.putInt(dataSize);
+        buffer.putInt(virtualAddress);
+        buffer.putInt(relocTableOffset);
+        buffer.putInt(relocCount);
+        buffer.putInt(flags);
     }
 }
@@ -1,6 +1,6 @@
 package object;
 
-import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public record XloffSymbol(int nameOffset, int value, int section, int type, int flags) {
     public static final int GLOBAL = 1;
@@ -9,11 +9,11 @@ public record XloffSymbol(int nameOffset, int value, int section, int type, int
     public static final int SPECIAL = 4;
     public static final int SIZE = 12;
 
-    public void write(LittleEndian.Output output) throws IOException {
-        output.write32(nameOffset);
-        output.write32(value);
-        output.write16(section);
-        output.write8(type);
-        output.write8(flags);
+    public void write(ByteBuffer buffer) {
+        buffer.putInt(nameOffset);
+        buffer.putInt(value);
+        buffer.putShort((short) section);
+        buffer.put((byte) type);
+        buffer.put((byte) flags);
     }
 }
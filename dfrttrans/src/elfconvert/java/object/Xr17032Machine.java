@@ -37,4 +37,9 @@ public class Xr17032Machine implements Machine {
             default -> throw new IllegalArgumentException("unknown relocation type %d".formatted(type));
         };
     }
+
+    @Override
+    public boolean isElfRelocPcRelative(int type) {
+        return false;
+    }
 }
@@ -1,4 +1,3 @@
-import java.io.PrintStream;
 import java.util.List;
 
 public interface AstDefinition {
@@ -6,7 +5,7 @@ public interface AstDefinition {
 
     String section();
 
-    void print(PrintStream stream);
+    void print(Emitter stream);
 
     default String getVisibilityPrefix() {
         return symbol().externallyVisible() ? "" : "static ";
@@ -15,33 +14,37 @@ public interface AstDefinition {
     record Function(AstSymbol.Location.Function symbol, String section, List<AstSymbol.Location> arguments,
                     List<AstSymbol.Location> returns, AstStatement.Block body) implements AstDefinition {
         @Override
-        public void print(PrintStream stream) {
-            stream.printf("__attribute__((noinline)) %s%s %s(", getVisibilityPrefix(), symbol.type().getReturnType(), symbol.name());
+        public void print(Emitter stream) {
+            stream.print("__attribute__((noinline)) ").print(getVisibilityPrefix());
+            symbol.type().printAttributes(stream);
+            symbol.type().printReturnType(stream);
+            stream.print(' ').print(symbol.name()).print('(');
             boolean haveArg = false;
 
             for (var arg : arguments) {
                 if (haveArg) stream.print(", ");
-                stream.printf("unsigned long %s", arg.name());
+                stream.print("unsigned long ").print(arg.name());
                 haveArg = true;
             }
 
             stream.println(") {");
 
             for (var ret : returns) {
-                stream.print(Utils.INDENT);
-                stream.printf("unsigned long %s;%n", ret.name());
+                stream.printIndent(1).print("unsigned long ").print(ret.name()).println(";");
             }
 
             body.printBody(stream, 1);
 
             stream.println("ret:");
-            stream.print(Utils.INDENT);
+            stream.printIndent(1);
 
             switch (returns.size()) {
                 case 0 -> stream.println("return;");
-                case 1 -> stream.printf("return %s;%n", returns.getFirst().name());
+                case 1 -> stream.print("return ").print(returns.getFirst().name()).println(";");
                 default -> {
-                    stream.printf("return (%s){", symbol.type().getReturnType());
+                    stream.print("return (");
+                    symbol.type().printReturnType(stream);
+                    stream.print("){");
                     boolean haveRet = false;
 
                     for (var ret : returns) {
@@ -61,35 +64,43 @@ public interface AstDefinition {
     record Variable(AstSymbol.Location.Variable symbol, String section,
                     AstExpression.Literal value) implements AstDefinition {
         @Override
-        public void print(PrintStream stream) {
-            stream.printf("%sunsigned long %s = %s;%n", getVisibilityPrefix(), symbol.name(), value.getValueString());
+        public void print(Emitter stream) {
+            stream.print(getVisibilityPrefix()).print("unsigned long ").print(symbol.name()).print(" = ");
+            value.print(stream);
+            stream.println(";");
         }
     }
 
     record Buffer(AstSymbol.Location.Buffer symbol, String section,
                   AstExpression.Literal size) implements AstDefinition {
         @Override
-        public void print(PrintStream stream) {
-            stream.printf("__attribute__((__aligned__(4))) %sunsigned char %s[%s];%n", getVisibilityPrefix(), symbol.name(), size.getValueString());
+        public void print(Emitter stream) {
+            stream.print("__attribute__((__aligned__(4))) ").print(getVisibilityPrefix()).print("unsigned char ").print(symbol.name()).print('[');
+            size.print(stream);
+            stream.println("];");
         }
     }
 
     record EmptyTable(AstSymbol.Location.Table symbol, String section,
                       AstExpression.Literal count) implements AstDefinition {
         @Override
-        public void print(PrintStream stream) {
-            stream.printf("%sunsigned long %s[%s];%n", getVisibilityPrefix(), symbol.name(), count.getValueString());
+        public void print(Emitter stream) {
+            stream.print(getVisibilityPrefix()).print("unsigned long ").print(symbol.name()).print('[');
+            count.print(stream);
+            stream.println("];");
         }
     }
 
     record DataTable(AstSymbol.Location.Table symbol, String section,
                      List<AstExpression.Literal> values) implements AstDefinition {
         @Override
-        public void print(PrintStream stream) {
-            stream.printf("%sunsigned long %s[] = {%n", getVisibilityPrefix(), symbol.name());
+        public void print(Emitter stream) {
+            stream.print(getVisibilityPrefix()).print("unsigned long ").print(symbol.name()).println("[] = {");
 
             for (var value : values) {
-                stream.printf("    %s,%n", value.getValueString());
+                stream.printIndent(1);
+                value.print(stream);
+                stream.println(",");
             }
 
             stream.println("};");
@@ -1,39 +1,44 @@
-import java.io.PrintStream;
 import java.util.List;
 
 public interface AstExpression {
-    void print(PrintStream stream);
+    void print(Emitter stream);
 
     interface Literal extends AstExpression {
-        String getValueString();
-
-        default void print(PrintStream stream) {
-            stream.print(getValueString());
-        }
-
         record Int(int value) implements Literal {
             @Override
-            public String getValueString() {
-                return Integer.toUnsignedString(value, 10) + "UL";
+            public void print(Emitter stream) {
+                stream.printUnsigned(value).print("UL");
             }
         }
 
-        record Str(String value) implements Literal {
+        record Str(String value, String name, String section) implements Literal {
+            public Str(String value) {
+                this(value, null, null);
+            }
+
             @Override
-            public String getValueString() {
-                return "((unsigned long)%s)".formatted(Utils.escapeString(value));
+            public void print(Emitter stream) {
+                if (name != null) {
+                    stream.print("((unsigned long)").print(name).print(')');
+                } else {
+                    stream.print("((unsigned long)").printString(value).print(')');
+                }
+            }
+
+            public void printDefinition(Emitter stream) {
+                stream.print("static const char ").print(name).print("[] __attribute__((aligned(1))) = ").printString(value).println(";");
             }
         }
 
         record Sym(AstSymbol.Location value) implements Literal {
             @Override
-            public String getValueString() {
+            public void print(Emitter stream) {
                 if (value.name().equals("_dfs_argv")) {
-                    return value.name();
+                    stream.print(value.name());
                 } else if (value instanceof AstSymbol.Location.Variable) {
-                    return "((unsigned long)&%s)".formatted(value.name());
+                    stream.print("((unsigned long)&").print(value.name()).print(')');
                 } else {
-                    return "((unsigned long)%s)".formatted(value.name());
+                    stream.print("((unsigned long)").print(value.name()).print(')');
                 }
             }
         }
@@ -41,7 +46,7 @@ public interface AstExpression {
 
     record InitializerList(List<AstExpression> values) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
+        public void print(Emitter stream) {
             stream.print("{");
             boolean haveValue = false;
 
@@ -58,12 +63,12 @@ public interface AstExpression {
     record Call(AstExpression function, AstSymbol.FunctionType type,
                 List<AstExpression> arguments) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
+        public void print(Emitter stream) {
             if (function instanceof Literal.Sym(AstSymbol.Location.Function value)) {
-                stream.printf("%s(", value.name());
+                stream.print(value.name()).print('(');
             } else {
                 if (type.implicit()) throw new IllegalStateException();
-                stream.printf("((%s)", type.name());
+                stream.print("((").print(type.name()).print(')');
                 function.print(stream);
                 stream.print(")(");
             }
@@ -82,13 +87,13 @@ public interface AstExpression {
 
     record Dereference(AstExpression pointer, String prefix) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
+        public void print(Emitter stream) {
             switch (pointer) {
                 case Literal.Sym(AstSymbol.Location.Variable value) when !value.name().equals("_dfs_argv") ->
                         stream.print(value.name());
-                case Literal.Sym(AstSymbol.Location.Table value) -> stream.printf("(*%s)", value.name());
+                case Literal.Sym(AstSymbol.Location.Table value) -> stream.print("(*").print(value.name()).print(')');
                 default -> {
-                    stream.printf("(*(%sunsigned long *)", prefix);
+                    stream.print("(*(").print(prefix).print("unsigned long *)");
                     pointer.print(stream);
                     stream.print(")");
                 }
@@ -98,35 +103,35 @@ public interface AstExpression {
 
     record DereferenceShort(AstExpression pointer, String prefix) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
+        public void print(Emitter stream) {
             stream.print("((unsigned long)");
             printBase(stream);
             stream.print(")");
         }
 
-        public void printBase(PrintStream stream) {
-            stream.printf("*(%sunsigned short *)", prefix);
+        public void printBase(Emitter stream) {
+            stream.print("*(").print(prefix).print("unsigned short *)");
             pointer.print(stream);
         }
     }
 
     record DereferenceByte(AstExpression pointer, String prefix) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
+        public void print(Emitter stream) {
             stream.print("((unsigned long)");
             printBase(stream);
             stream.print(")");
         }
 
-        public void printBase(PrintStream stream) {
-            stream.printf("*(%sunsigned char *)", prefix);
+        public void printBase(Emitter stream) {
+            stream.print("*(").print(prefix).print("unsigned char *)");
             pointer.print(stream);
         }
     }
 
     record Write(AstExpression location, String operator, AstExpression value) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
+        public void print(Emitter stream) {
             switch (location) {
                 case Dereference ignored -> location.print(stream);
                 case DereferenceShort ds -> ds.printBase(stream);
@@ -134,15 +139,24 @@ public interface AstExpression {
                 default -> throw new IllegalStateException();
             }
 
-            stream.printf(" %s ", operator);
+            stream.print(' ').print(operator).print(' ');
+            value.print(stream);
+        }
+    }
+
+    record Convert(AstExpression value) implements AstExpression {
+        @Override
+        public void print(Emitter stream) {
+            stream.print("((unsigned long)");
             value.print(stream);
+            stream.print(")");
         }
     }
 
     record UnaryOperator(String operator, AstExpression value) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
-            stream.printf("(%s", operator);
+        public void print(Emitter stream) {
+            stream.print('(').print(operator);
             value.print(stream);
             stream.print(")");
         }
@@ -150,10 +164,10 @@ public interface AstExpression {
 
     record BinaryOperator(AstExpression left, String operator, AstExpression right) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
+        public void print(Emitter stream) {
             stream.print("(");
             left.print(stream);
-            stream.printf(" %s ", operator);
+            stream.print(' ').print(operator).print(' ');
             right.print(stream);
             stream.print(")");
         }
@@ -161,10 +175,10 @@ public interface AstExpression {
 
     record SignedBinaryOperator(AstExpression left, String operator, AstExpression right) implements AstExpression {
         @Override
-        public void print(PrintStream stream) {
+        public void print(Emitter stream) {
             stream.print("((signed long)");
             left.print(stream);
-            stream.printf(" %s (signed long)", operator);
+            stream.print(' ').print(operator).print(" (signed long)");
             right.print(stream);
             stream.print(")");
         }
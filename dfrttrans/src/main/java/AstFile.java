@@ -1,4 +1,4 @@
 import java.util.List;
 
-public record AstFile(List<AstSymbol> symbols, List<AstDefinition> definitions) {
+public record AstFile(List<AstSymbol> symbols, List<AstExpression.Literal.Str> strings, List<AstDefinition> definitions) {
 }
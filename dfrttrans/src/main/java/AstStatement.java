@@ -1,20 +1,19 @@
-import java.io.PrintStream;
 import java.util.List;
 
 public interface AstStatement {
-    void print(PrintStream stream, int indentLevel);
+    void print(Emitter stream, int indentLevel);
 
     record Block(List<AstStatement> body) implements AstStatement {
         @Override
-        public void print(PrintStream stream, int indentLevel) {
-            Utils.writeIndent(stream, indentLevel);
+        public void print(Emitter stream, int indentLevel) {
+            stream.printIndent(indentLevel);
             stream.println("{");
             printBody(stream, indentLevel + 1);
-            Utils.writeIndent(stream, indentLevel);
+            stream.printIndent(indentLevel);
             stream.println("}");
         }
 
-        public void printBody(PrintStream stream, int indentLevel) {
+        public void printBody(Emitter stream, int indentLevel) {
             for (var stmt : body) {
                 stmt.print(stream, indentLevel);
             }
@@ -23,15 +22,16 @@ public interface AstStatement {
 
     record DeclareVariable(AstSymbol symbol, AstExpression initializer) implements AstStatement {
         @Override
-        public void print(PrintStream stream, int indentLevel) {
-            Utils.writeIndent(stream, indentLevel);
+        public void print(Emitter stream, int indentLevel) {
+            stream.printIndent(indentLevel);
 
             if (initializer instanceof AstExpression.Call(var ignored0, var type, var ignored1)) {
-                stream.printf("%s %s", type.getReturnType(), symbol.name());
+                type.printReturnType(stream);
+                stream.print(' ').print(symbol.name());
             } else if (initializer instanceof AstExpression.InitializerList) {
-                stream.printf("unsigned long %s[]", symbol.name());
+                stream.print("unsigned long ").print(symbol.name()).print("[]");
             } else {
-                stream.printf("unsigned long %s", symbol.name());
+                stream.print("unsigned long ").print(symbol.name());
             }
 
             if (initializer != null) {
@@ -45,8 +45,8 @@ public interface AstStatement {
 
     record Expression(AstExpression expression) implements AstStatement {
         @Override
-        public void print(PrintStream stream, int indentLevel) {
-            Utils.writeIndent(stream, indentLevel);
+        public void print(Emitter stream, int indentLevel) {
+            stream.printIndent(indentLevel);
             expression.print(stream);
             stream.println(";");
         }
@@ -54,25 +54,25 @@ public interface AstStatement {
 
     record While(AstExpression condition, AstStatement.Block body) implements AstStatement {
         @Override
-        public void print(PrintStream stream, int indentLevel) {
-            Utils.writeIndent(stream, indentLevel);
+        public void print(Emitter stream, int indentLevel) {
+            stream.printIndent(indentLevel);
             stream.print("while (");
             condition.print(stream);
             stream.println(") {");
             body.printBody(stream, indentLevel + 1);
-            Utils.writeIndent(stream, indentLevel);
+            stream.printIndent(indentLevel);
             stream.println("}");
         }
     }
 
     record If(AstExpression condition, AstStatement.Block trueBody, AstStatement falseBody) implements AstStatement {
         @Override
-        public void print(PrintStream stream, int indentLevel) {
-            Utils.writeIndent(stream, indentLevel);
+        public void print(Emitter stream, int indentLevel) {
+            stream.printIndent(indentLevel);
             printBase(stream, indentLevel);
         }
 
-        private void printBase(PrintStream stream, int indentLevel) {
+        private void printBase(Emitter stream, int indentLevel) {
             If current = this;
 
             label:
@@ -81,7 +81,7 @@ public interface AstStatement {
                 current.condition.print(stream);
                 stream.println(") {");
                 current.trueBody.printBody(stream, indentLevel + 1);
-                Utils.writeIndent(stream, indentLevel);
+                stream.printIndent(indentLevel);
 
                 switch (current.falseBody) {
                     case If elseIf -> {
@@ -91,7 +91,7 @@ public interface AstStatement {
                     case Block block -> {
                         stream.println("} else {");
                         block.printBody(stream, indentLevel + 1);
-                        Utils.writeIndent(stream, indentLevel);
+                        stream.printIndent(indentLevel);
                         stream.println("}");
                         break label;
                     }
@@ -107,17 +107,17 @@ public interface AstStatement {
 
     record Basic(String text) implements AstStatement {
         @Override
-        public void print(PrintStream stream, int indentLevel) {
-            Utils.writeIndent(stream, indentLevel);
+        public void print(Emitter stream, int indentLevel) {
+            stream.printIndent(indentLevel);
             stream.println(text);
         }
     }
 
     record DeclareBuffer(AstSymbol.Location.Buffer symbol, int size) implements AstStatement {
         @Override
-        public void print(PrintStream stream, int indentLevel) {
-            Utils.writeIndent(stream, indentLevel);
-            stream.printf("__attribute__((aligned(4))) unsigned char %s[%d];%n", symbol.name(), size);
+        public void print(Emitter stream, int indentLevel) {
+            stream.printIndent(indentLevel);
+            stream.print("__attribute__((aligned(4))) unsigned char ").print(symbol.name()).print('[').printSigned(size).println("];");
         }
     }
 }
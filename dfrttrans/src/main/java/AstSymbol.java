@@ -1,11 +1,10 @@
-import java.io.PrintStream;
 import java.util.List;
 import java.util.Objects;
 
 public interface AstSymbol {
     String name();
 
-    void print(PrintStream stream);
+    void print(Emitter stream, CompilationContext context);
 
     interface Location extends AstSymbol {
         boolean externallyVisible();
@@ -16,30 +15,35 @@ public interface AstSymbol {
 
         record Function(String name, boolean externallyVisible, FunctionType type) implements Location {
             @Override
-            public void print(PrintStream stream) {
-                type.print(stream);
-                stream.printf("%s %s %s(%s);%n", getVisibilityName(), type.getReturnType(), name, type.getArgumentString());
+            public void print(Emitter stream, CompilationContext context) {
+                type.print(stream, context);
+                stream.print(getVisibilityName()).print(' ');
+                type.printAttributes(stream);
+                type.printReturnType(stream);
+                stream.print(' ').print(name).print('(');
+                type.printArguments(stream);
+                stream.println(");");
             }
         }
 
         record Variable(String name, boolean externallyVisible) implements Location {
             @Override
-            public void print(PrintStream stream) {
-                stream.printf("%s unsigned long %s;%n", getVisibilityName(), name);
+            public void print(Emitter stream, CompilationContext context) {
+                stream.print(getVisibilityName()).print(" unsigned long ").print(name).println(";");
             }
         }
 
         record Buffer(String name, boolean externallyVisible) implements Location {
             @Override
-            public void print(PrintStream stream) {
-                stream.printf("%s unsigned char %s[];%n", getVisibilityName(), name);
+            public void print(Emitter stream, CompilationContext context) {
+                stream.print(getVisibilityName()).print(" unsigned char ").print(name).println("[];");
             }
         }
 
         record Table(String name, boolean externallyVisible) implements Location {
             @Override
-            public void print(PrintStream stream) {
-                stream.printf("%s unsigned long %s[];%n", getVisibilityName(), name);
+            public void print(Emitter stream, CompilationContext context) {
+                stream.print(getVisibilityName()).print(" unsigned long ").print(name).println("[];");
             }
         }
     }
@@ -49,53 +53,57 @@ public interface AstSymbol {
         private final int arguments;
         private final List<String> returns;
         private final boolean implicit;
-        private boolean printed = false;
+        private final boolean registerArguments;
 
-        public FunctionType(String name, int arguments, List<String> returns, boolean implicit) {
+        public FunctionType(String name, int arguments, List<String> returns, boolean implicit, boolean registerArguments) {
             this.name = name;
             this.arguments = arguments;
             this.returns = returns;
             this.implicit = implicit;
+            this.registerArguments = registerArguments;
         }
 
-        public String getReturnType() {
-            return switch (returns.size()) {
-                case 0 -> "void";
-                case 1 -> "unsigned long";
-                default -> "struct %s".formatted(name);
-            };
+        public void printAttributes(Emitter stream) {
+            if (registerArguments) stream.print("__attribute__((regparm(3))) ");
         }
 
-        public String getArgumentString() {
-            var text = new StringBuilder();
+        public void printReturnType(Emitter stream) {
+            switch (returns.size()) {
+                case 0 -> stream.print("void");
+                case 1 -> stream.print("unsigned long");
+                default -> stream.print("struct ").print(name);
+            }
+        }
 
+        public void printArguments(Emitter stream) {
             for (int i = 0; i < arguments; i++) {
-                if (i != 0) text.append(", ");
-                text.append("unsigned long");
+                if (i != 0) stream.print(", ");
+                stream.print("unsigned long");
             }
-
-            return text.toString();
         }
 
         @Override
-        public void print(PrintStream stream) {
-            if (printed) return;
+        public void print(Emitter stream, CompilationContext context) {
+            if (!context.markPrinted(this)) return;
 
             if (returns.size() >= 2) {
-                stream.printf("struct %s {%n", name);
+                stream.print("struct ").print(name).println(" {");
 
                 for (var ret : returns) {
-                    stream.printf("    unsigned long %s;%n", ret);
+                    stream.print("    unsigned long ").print(ret).println(";");
                 }
 
                 stream.println("};");
             }
 
             if (!implicit) {
-                stream.printf("typedef %s(*%s)(%s);%n", getReturnType(), name, getArgumentString());
+                stream.print("typedef ");
+                printAttributes(stream);
+                printReturnType(stream);
+                stream.print("(*").print(name).print(")(");
+                printArguments(stream);
+                stream.println(");");
             }
-
-            printed = true;
         }
 
         @Override
@@ -119,12 +127,13 @@ public interface AstSymbol {
             return Objects.equals(this.name, that.name) &&
                     this.arguments == that.arguments &&
                     Objects.equals(this.returns, that.returns) &&
-                    this.implicit == that.implicit;
+                    this.implicit == that.implicit &&
+                    this.registerArguments == that.registerArguments;
         }
 
         @Override
         public int hashCode() {
-            return Objects.hash(name, arguments, returns, implicit);
+            return Objects.hash(name, arguments, returns, implicit, registerArguments);
         }
 
         @Override
@@ -133,7 +142,8 @@ public interface AstSymbol {
                     "name=" + name + ", " +
                     "arguments=" + arguments + ", " +
                     "returns=" + returns + ", " +
-                    "implicit=" + implicit + ']';
+                    "implicit=" + implicit + ", " +
+                    "registerArguments=" + registerArguments + ']';
         }
     }
 }
@@ -0,0 +1,71 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+
+public class Batch {
+    private record Result(int status, ByteArrayOutputStream diagnostics) {
+    }
+
+    public static int run(String[] args) throws IOException {
+        var options = Arrays.copyOf(args, Main.options(args));
+        var files = new ArrayList<String>();
+
+        for (var arg : Arrays.copyOfRange(args, options.length, args.length)) {
+            if (arg.startsWith("@")) {
+                for (var word : Files.readString(Path.of(arg.substring(1))).split("\\s+")) {
+                    if (!word.isEmpty()) files.add(word);
+                }
+            } else {
+                files.add(arg);
+            }
+        }
+
+        if (files.size() % 2 != 0) {
+            System.err.println("dfrttrans: batch inputs and outputs must come in pairs");
+            return 2;
+        }
+
+        var jobs = new ArrayList<Callable<Result>>();
+        var directory = Path.of("");
+
+        for (int i = 0; i < files.size(); i += 2) {
+            var job = Arrays.copyOf(options, options.length + 2);
+            job[options.length] = files.get(i);
+            job[options.length + 1] = files.get(i + 1);
+
+            jobs.add(() -> {
+                var buffer = new ByteArrayOutputStream();
+                int status = Main.execute(directory, job, new PrintStream(buffer, true, StandardCharsets.UTF_8));
+                return new Result(status, buffer);
+            });
+        }
+
+        var results = new ArrayList<Result>();
+
+        try (var pool = new ForkJoinPool()) {
+            for (var future : pool.invokeAll(jobs)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+
+        int status = 0;
+
+        for (var result : results) {
+            result.diagnostics().writeTo(System.out);
+            status = Math.max(status, result.status());
+        }
+
+        System.out.flush();
+        return status;
+    }
+}
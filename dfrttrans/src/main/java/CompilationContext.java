@@ -0,0 +1,64 @@
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.*;
+
+public class CompilationContext {
+    private final PrintStream diagnostics;
+    public final boolean volatileAccess;
+    public final boolean privateRegisterArguments;
+    public final boolean readOnlyStrings;
+    private final Path directory;
+    private final List<Path> registerArgumentRoots;
+    private final Map<String, Boolean> registerArgumentPaths = new HashMap<>();
+    private final Set<String> sources;
+    private final Set<AstSymbol.FunctionType> printedTypes = Collections.newSetFromMap(new IdentityHashMap<>());
+    private int errors = 0;
+    private int temporaries = 0;
+
+    public CompilationContext(PrintStream diagnostics, boolean volatileAccess, boolean privateRegisterArguments, boolean readOnlyStrings, Path directory,
+                              List<Path> registerArgumentRoots, Set<String> sources) {
+        this.diagnostics = diagnostics;
+        this.volatileAccess = volatileAccess;
+        this.privateRegisterArguments = privateRegisterArguments;
+        this.readOnlyStrings = readOnlyStrings;
+        this.directory = directory;
+        this.registerArgumentRoots = registerArgumentRoots;
+        this.sources = sources;
+    }
+
+    public void addSource(String path) {
+        if (sources != null) sources.add(path);
+    }
+
+    // whether something declared at this location belongs to the component
+    // whose functions all pass their arguments in registers
+    public boolean registerArguments(Location location) {
+        if (registerArgumentRoots.isEmpty()) return false;
+
+        return registerArgumentPaths.computeIfAbsent(location.path(), path -> {
+            var absolute = directory.resolve(path).toAbsolutePath().normalize();
+            return registerArgumentRoots.stream().anyMatch(absolute::startsWith);
+        });
+    }
+
+    public void error(Location location, String message) {
+        diagnostics.printf("%s:%d:%d: %s%n", location.path(), location.line(), location.column(), message);
+        errors += 1;
+    }
+
+    public boolean hasErrors() {
+        return errors != 0;
+    }
+
+    public void resetTemporaries() {
+        temporaries = 0;
+    }
+
+    public String getTemporaryName() {
+        return "_dft" + temporaries++;
+    }
+
+    public boolean markPrinted(AstSymbol.FunctionType type) {
+        return printedTypes.add(type);
+    }
+}
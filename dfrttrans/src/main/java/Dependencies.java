@@ -0,0 +1,34 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+
+public final class Dependencies {
+    public static void write(Path path, String target, Collection<String> sources) throws IOException {
+        var paths = new LinkedHashSet<String>();
+
+        for (var source : sources) {
+            paths.add(Path.of(source).normalize().toString());
+        }
+
+        var builder = new StringBuilder(escape(target)).append(':');
+
+        for (var source : paths) {
+            builder.append(" \\\n ").append(escape(source));
+        }
+
+        builder.append('\n');
+
+        for (var source : paths.stream().skip(1).toList()) {
+            builder.append('\n').append(escape(source)).append(":\n");
+        }
+
+        Files.writeString(path, builder, StandardCharsets.ISO_8859_1);
+    }
+
+    private static String escape(String path) {
+        return path.replace("$", "$$").replace("#", "\\#").replace(" ", "\\ ");
+    }
+}
@@ -0,0 +1,95 @@
+import object.LoadOptions;
+import object.ObjectFile;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class Driver {
+    private static final Map<String, String> IDENTITIES = new ConcurrentHashMap<>();
+
+    private final Translator translator;
+    private final List<String> compiler;
+    private final LoadOptions options;
+
+    public Driver(Translator translator, String compiler, LoadOptions options) {
+        this.translator = translator;
+        this.compiler = List.of(compiler.trim().split("\\s+"));
+        this.options = options;
+    }
+
+    // what the compiler reports about itself, so that objects cached with
+    // one compiler are not handed out once it is upgraded or swapped; asked
+    // once per process for every compiler that is used
+    public String identity() throws IOException {
+        try {
+            return IDENTITIES.computeIfAbsent(compiler.getFirst(), command -> {
+                try {
+                    var process = new ProcessBuilder(command, "--version")
+                            .redirectErrorStream(true)
+                            .start();
+
+                    process.getOutputStream().close();
+                    var version = new String(process.getInputStream().readAllBytes());
+                    return process.waitFor() + "\0" + version;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new UncheckedIOException(new InterruptedIOException());
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    public int compile(Path directory, Path input, String path, Path output, PrintStream diagnostics, Set<String> sources) throws IOException {
+        var stream = translator.emit(input, path, diagnostics, sources);
+        if (stream == null) return 1;
+
+        var object = Files.createTempFile("dfrttrans", ".o");
+
+        try {
+            var command = new ArrayList<>(compiler);
+            command.addAll(List.of("-pipe", "-c", "-o", object.toString(), "-xc", "-"));
+
+            var process = new ProcessBuilder(command)
+                    .directory(directory.toAbsolutePath().toFile())
+                    .redirectErrorStream(true)
+                    .start();
+
+            var messages = new ByteArrayOutputStream();
+            var reader = Thread.startVirtualThread(() -> {
+                try (var stdout = process.getInputStream()) {
+                    stdout.transferTo(messages);
+                } catch (IOException ignored) {
+                }
+            });
+
+            try (var stdin = process.getOutputStream()) {
+                stream.writeTo(stdin);
+            } catch (IOException ignored) {
+            }
+
+            int status = process.waitFor();
+            reader.join();
+            messages.writeTo(diagnostics);
+
+            if (status != 0) return 1;
+
+            ObjectFile.loadElf(object.toString(), options).writeXloff(output.toString(), options.restat());
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } finally {
+            Files.deleteIfExists(object);
+        }
+    }
+}
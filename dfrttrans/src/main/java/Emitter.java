@@ -0,0 +1,146 @@
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+public final class Emitter {
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] INDENT = Utils.INDENT.getBytes(StandardCharsets.US_ASCII);
+
+    private byte[] buffer = new byte[1 << 16];
+    private int length;
+
+    private void reserve(int count) {
+        if (length + count > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + count));
+        }
+    }
+
+    public Emitter print(char value) {
+        if (value >= 0x80) return print(String.valueOf(value));
+
+        reserve(1);
+        buffer[length++] = (byte) value;
+        return this;
+    }
+
+    public Emitter print(String text) {
+        int count = text.length();
+        reserve(count);
+
+        for (int i = 0; i < count; i++) {
+            char c = text.charAt(i);
+
+            if (c >= 0x80) {
+                var bytes = text.substring(i).getBytes(StandardCharsets.UTF_8);
+                reserve(bytes.length);
+                System.arraycopy(bytes, 0, buffer, length, bytes.length);
+                length += bytes.length;
+                return this;
+            }
+
+            buffer[length++] = (byte) c;
+        }
+
+        return this;
+    }
+
+    public Emitter println(String text) {
+        return print(text).println();
+    }
+
+    public Emitter println() {
+        return print('\n');
+    }
+
+    public Emitter printUnsigned(int value) {
+        long remaining = Integer.toUnsignedLong(value);
+        int digits = 1;
+
+        for (long i = remaining; i >= 10; i /= 10) {
+            digits += 1;
+        }
+
+        reserve(digits);
+
+        for (int i = length + digits - 1; i >= length; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+
+        length += digits;
+        return this;
+    }
+
+    public Emitter printSigned(int value) {
+        if (value < 0) print('-');
+        return printUnsigned(value < 0 ? -value : value);
+    }
+
+    public Emitter printIndent(int indentLevel) {
+        reserve(indentLevel * INDENT.length);
+
+        for (int i = 0; i < indentLevel; i++) {
+            System.arraycopy(INDENT, 0, buffer, length, INDENT.length);
+            length += INDENT.length;
+        }
+
+        return this;
+    }
+
+    public Emitter printString(String str) {
+        var bytes = str.getBytes(StandardCharsets.UTF_8);
+        reserve(bytes.length * 10 + 2);
+        buffer[length++] = '"';
+        var wasEscape = false;
+
+        for (int value : bytes) {
+            if (value >= 0x20 && value <= 0x7e && value != '"' && (!wasEscape || !Utils.isHexDigit(value))) {
+                buffer[length++] = (byte) value;
+                wasEscape = false;
+            } else {
+                buffer[length++] = '\\';
+                buffer[length++] = 'x';
+
+                for (int shift = value < 0 ? 28 : 4; shift >= 0; shift -= 4) {
+                    buffer[length++] = HEX[(value >> shift) & 15];
+                }
+
+                wasEscape = true;
+            }
+        }
+
+        buffer[length++] = '"';
+        return this;
+    }
+
+    public void writeTo(OutputStream output) throws IOException {
+        output.write(buffer, 0, length);
+    }
+
+    // see ObjectFile.writeXloff for restat
+    public void writeTo(Path path, boolean restat) throws IOException {
+        if (Files.isRegularFile(path) && Files.size(path) == length) {
+            var existing = Files.readAllBytes(path);
+
+            if (Arrays.equals(existing, 0, existing.length, buffer, 0, length)) {
+                if (!restat) Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+                return;
+            }
+        }
+
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            var data = ByteBuffer.wrap(buffer, 0, length);
+
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        }
+    }
+}
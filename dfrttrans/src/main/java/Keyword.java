@@ -0,0 +1,46 @@
+import java.util.Locale;
+
+public enum Keyword {
+    CONST,
+    EXTERN,
+    EXTERNPTR,
+    STRUCT,
+    ENDSTRUCT,
+    FNPTR,
+    FN,
+    PRIVATE,
+    END,
+    DATASECTION,
+    BSSSECTION,
+    ROSECTION,
+    FNSECTION,
+    FNVOLATILE,
+    FILEVOLATILE,
+    VOLATILE,
+    BUFFER,
+    TABLE,
+    ENDTABLE,
+    VAR,
+    PUBLIC,
+    POINTEROF,
+    IF,
+    ELSEIF,
+    ELSE,
+    WHILE,
+    AUTO,
+    SWAP,
+    BSWAP,
+    RETURN,
+    DROP,
+    ALLOC,
+    GB,
+    SB,
+    GI,
+    SI,
+    BREAK,
+    CONTINUE,
+    _MAX,
+    DUP;
+
+    public final String text = name().toLowerCase(Locale.ENGLISH);
+}
@@ -1,168 +1,373 @@
-import java.io.IOException;
-import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.function.IntPredicate;
+import java.util.Set;
 
 public class Lexer {
     private static final int TAB_WIDTH = 8;
-    private static final Map<String, TokenType> OPERATORS = new HashMap<>();
-    private final InputStream input;
-    private final StringBuilder text = new StringBuilder();
-    private Location startLocation = null;
+    private static final List<Name> PREDEFINED = new ArrayList<>();
+
+    private static final byte WS = 1;
+    private static final byte LF = 2;
+    private static final byte KEY = 4;
+    private static final byte DIGIT = 8;
+    private static final byte IDENT_START = 16;
+    private static final byte IDENT_PART = IDENT_START | DIGIT;
+    private static final byte WS_OR_LF = WS | LF;
+    private static final byte DELIMITER = WS | LF | KEY;
+    private static final byte[] CLASSES = new byte[256];
+    // tokens of header regions lexed by earlier units in this process, reused
+    // when a later unit contains the same bytes; parsing still runs per unit
+    private static final long REGION_CACHE_LIMIT = 16L << 20;
+    private static final Map<RegionKey, LexedRegion> LEXED_REGIONS = new LinkedHashMap<>(256, 0.75f, true);
+    private static long lexedRegionSize;
+
+    private final byte[] input;
+    private final CompilationContext context;
+    private final TokenStream tokens;
+    private final Map<String, Integer> paths = new HashMap<>();
+    private Name[] names = new Name[1024];
+    private int nameCount = 0;
     private String currentPath;
+    private int currentFile;
+    private int position = 0;
     private int currentLine = 1;
-    private int currentColumn = 1;
-    private boolean eof = false;
-    private boolean lineStart = true;
-    private int nextValue = -1;
-
-    public Lexer(InputStream input, String path) {
+    private int lineOffset = 0;
+    private int columnOffset = 0;
+    private int column = 1;
+    private String mainPath;
+    private int regionStart = -1;
+    private int regionLine;
+    private int regionTokens;
+    private boolean regionErrors;
+
+    public Lexer(byte[] input, String path, CompilationContext context) {
         this.input = input;
+        this.context = context;
+        this.tokens = new TokenStream(input.length / 4);
         this.currentPath = path;
+        this.currentFile = tokens.addPath(path);
+        paths.put(path, currentFile);
+
+        for (var name : PREDEFINED) {
+            insert(name);
+        }
     }
 
-    private int peek() throws IOException {
-        if (eof) return -1;
-        if (nextValue >= 0) return nextValue;
+    private record Name(String text, TokenType type, Keyword keyword) {
+    }
 
-        int value = input.read();
+    private record RegionKey(String path, int line) {
+    }
 
-        if (value < 0) {
-            eof = true;
-            return -1;
+    private record LexedRegion(byte[] input, TokenStream tokens, int endLine) {
+        long size() {
+            return input.length + 32L * tokens.size();
         }
+    }
 
-        nextValue = value;
-        return value;
+    private static synchronized LexedRegion getLexedRegion(RegionKey key) {
+        return LEXED_REGIONS.get(key);
     }
 
-    private int advance() throws IOException {
-        int value = peek();
-        nextValue = -1;
-        if (value < 0) return value;
+    // least recently used regions go first once the cache outgrows the limit,
+    // so a long-running server doesn't keep every header it has ever seen
+    private static synchronized void putLexedRegion(RegionKey key, LexedRegion region) {
+        var previous = LEXED_REGIONS.put(key, region);
+        if (previous != null) lexedRegionSize -= previous.size();
+        lexedRegionSize += region.size();
 
-        text.append((char) value);
+        var iterator = LEXED_REGIONS.values().iterator();
 
-        if (value == '\n') {
-            currentLine += 1;
-            currentColumn = 1;
-            lineStart = true;
-        } else {
-            if (value == '\t') {
-                currentColumn = ((currentColumn - 1 + TAB_WIDTH) & -TAB_WIDTH) + 1;
-            } else {
-                currentColumn += 1;
+        while (lexedRegionSize > REGION_CACHE_LIMIT && iterator.hasNext()) {
+            lexedRegionSize -= iterator.next().size();
+            iterator.remove();
+        }
+    }
+
+    private int skipWhile(int position, int classes) {
+        byte[] input = this.input;
+
+        while (position < input.length && (CLASSES[input[position] & 0xff] & classes) != 0) {
+            if (input[position] == '\n') {
+                currentLine += 1;
+                lineOffset = position + 1;
             }
 
-            lineStart = false;
+            position += 1;
         }
 
-        return value;
+        return position;
     }
 
-    private boolean isWs(int value) {
-        return value == ' ' || value == '\t';
-    }
+    private int skipUntil(int position, int classes) {
+        byte[] input = this.input;
 
-    private boolean isWsOrLf(int value) {
-        return isWs(value) || value == '\n';
-    }
+        while (position < input.length && (CLASSES[input[position] & 0xff] & classes) == 0) {
+            position += 1;
+        }
 
-    private void skipWhile(IntPredicate predicate) throws IOException {
-        while (predicate.test(peek())) advance();
+        return position;
     }
 
-    private void skipUntil(IntPredicate predicate) throws IOException {
-        while (true) {
-            int value = peek();
-            if (value < 0 || predicate.test(value)) break;
-            advance();
+    private int columnAt(int position) {
+        if (columnOffset < lineOffset || columnOffset > position) {
+            columnOffset = lineOffset;
+            column = 1;
+        }
+
+        for (int i = columnOffset; i < position; i++) {
+            if (input[i] == '\t') {
+                column = ((column - 1 + TAB_WIDTH) & -TAB_WIDTH) + 1;
+            } else {
+                column += 1;
+            }
         }
+
+        columnOffset = position;
+        return column;
+    }
+
+    private Location location() {
+        return new Location(currentPath, currentLine, columnAt(position));
     }
 
-    private boolean consume(int value) throws IOException {
-        int actual = peek();
-        if (actual == value) advance();
-        return actual == value;
+    private String text(int start) {
+        return new String(input, start, position - start, StandardCharsets.ISO_8859_1);
     }
 
     private void error(String message) {
-        new Location(currentPath, currentLine, currentColumn).error(message);
+        location().error(context, message);
+        regionErrors = true;
+    }
+
+    private static int hash(byte[] input, int start, int end) {
+        int hash = 0;
+
+        for (int i = start; i < end; i++) {
+            hash = hash * 31 + (input[i] & 0xff);
+        }
+
+        return hash ^ (hash >>> 16);
     }
 
-    private void expect(int value) throws IOException {
-        if (!consume(value)) error("expected '%c'".formatted((char) value));
+    private static boolean matches(String text, byte[] input, int start, int end) {
+        if (text.length() != end - start) return false;
+
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i - start) != (input[i] & 0xff)) return false;
+        }
+
+        return true;
     }
 
-    private void processLocationDirective() throws IOException {
-        while (lineStart) {
-            if (!consume('#')) return;
+    private void insert(Name name) {
+        if (nameCount * 2 >= names.length) {
+            var old = names;
+            names = new Name[old.length * 2];
 
-            skipWhile(this::isWs);
-            text.setLength(0);
-            skipUntil(this::isWsOrLf);
-            String path = text.toString();
+            for (var entry : old) {
+                if (entry != null) place(entry);
+            }
+        }
+
+        place(name);
+        nameCount += 1;
+    }
 
-            skipWhile(this::isWs);
-            text.setLength(0);
-            skipUntil(this::isWsOrLf);
-            int line = Integer.parseUnsignedInt(text.toString(), 10);
+    private void place(Name name) {
+        byte[] bytes = name.text().getBytes(StandardCharsets.ISO_8859_1);
+        int mask = names.length - 1;
+        int slot = hash(bytes, 0, bytes.length) & mask;
 
-            skipWhile(this::isWs);
-            expect('\n');
+        while (names[slot] != null) slot = (slot + 1) & mask;
 
-            currentPath = path;
-            currentLine = line;
+        names[slot] = name;
+    }
 
-            skipWhile(this::isWsOrLf);
+    private Name intern(int start, int end) {
+        int mask = names.length - 1;
+        int slot = hash(input, start, end) & mask;
+
+        while (names[slot] != null) {
+            if (matches(names[slot].text(), input, start, end)) return names[slot];
+            slot = (slot + 1) & mask;
+        }
+
+        var name = new Name(new String(input, start, end - start, StandardCharsets.ISO_8859_1), classify(start, end), null);
+        insert(name);
+        return name;
+    }
+
+    private TokenType classify(int start, int end) {
+        int value = input[start] & 0xff;
+
+        if (value == '"') {
+            return TokenType.STRING;
+        } else if (value == '\'') {
+            return TokenType.CHAR;
+        } else if ((CLASSES[value] & KEY) != 0) {
+            return switch (value) {
+                case '!' -> TokenType.EXCL;
+                case '@' -> TokenType.AT;
+                case '(' -> TokenType.LPAREN;
+                case ')' -> TokenType.RPAREN;
+                case '[' -> TokenType.LBRACK;
+                case ']' -> TokenType.RBRACK;
+                default -> throw new IllegalStateException("unknown key char '%c'".formatted((char) value));
+            };
+        } else if (value == '-' || value == '+' || (CLASSES[value] & DIGIT) != 0) {
+            try {
+                Utils.parseInteger(new String(input, start, end - start, StandardCharsets.ISO_8859_1));
+                return TokenType.INTEGER;
+            } catch (NumberFormatException ignored) {
+                return null;
+            }
+        } else if ((CLASSES[value] & IDENT_START) != 0) {
+            for (int i = start + 1; i < end; i++) {
+                if ((CLASSES[input[i] & 0xff] & IDENT_PART) == 0) return null;
+            }
+
+            return TokenType.IDENTIFIER;
         }
+
+        return null;
     }
 
-    private Token emitToken(TokenType type) {
-        return new Token(type, text.toString(), startLocation);
+    private void processLocationDirective() {
+        while (position == lineOffset && position < input.length && input[position] == '#') {
+            saveRegion();
+            processLocationDirectives();
+
+            if (!reuseRegion()) {
+                regionStart = lineOffset;
+                regionLine = currentLine;
+                regionTokens = tokens.size();
+                regionErrors = false;
+            }
+        }
     }
 
-    private boolean isDigit(int value) {
-        return value >= '0' && value <= '9';
+    private void saveRegion() {
+        if (regionStart >= 0 && !regionErrors && !currentPath.equals(mainPath)) {
+            putLexedRegion(new RegionKey(currentPath, regionLine), new LexedRegion(Arrays.copyOfRange(input, regionStart, position),
+                    tokens.slice(regionTokens, tokens.size(), regionStart), currentLine));
+        }
+
+        regionStart = -1;
     }
 
-    private boolean isIdentStart(int value) {
-        return (value >= 'A' && value <= 'Z') || (value >= 'a' && value <= 'z') || value == '_';
+    private boolean reuseRegion() {
+        if (position >= input.length || currentPath.equals(mainPath)) return false;
+
+        var region = getLexedRegion(new RegionKey(currentPath, currentLine));
+        if (region == null) return false;
+
+        int start = lineOffset;
+        int end = start + region.input().length;
+
+        if (end >= input.length || input[end] != '#'
+                || !Arrays.equals(input, start, end, region.input(), 0, region.input().length)) {
+            return false;
+        }
+
+        tokens.append(region.tokens(), start, currentFile);
+        position = end;
+        lineOffset = end;
+        currentLine = region.endLine();
+        return true;
     }
 
-    private boolean isIdentPart(int value) {
-        return isIdentStart(value) || isDigit(value);
+    private void processLocationDirectives() {
+        while (position == lineOffset && position < input.length && input[position] == '#') {
+            position = skipWhile(position + 1, WS);
+            int start = position;
+            position = skipUntil(position, WS_OR_LF);
+            String path = text(start);
+
+            position = skipWhile(position, WS);
+            start = position;
+            position = skipUntil(position, WS_OR_LF);
+            int line = Integer.parseUnsignedInt(text(start), 10);
+
+            position = skipWhile(position, WS);
+
+            if (position < input.length && input[position] == '\n') {
+                position += 1;
+                lineOffset = position;
+            } else {
+                error("expected '\n'");
+            }
+
+            if (mainPath == null) mainPath = path;
+            context.addSource(path);
+
+            if (!path.equals(currentPath)) {
+                currentPath = path;
+                currentFile = paths.computeIfAbsent(path, tokens::addPath);
+            }
+
+            currentLine = line;
+
+            position = skipWhile(position, WS_OR_LF);
+        }
     }
 
-    private boolean isWsOrLfOrKc(int value) {
-        return isWsOrLf(value) || value == '!' || value == '@' || value == '(' || value == ')' || value == '[' || value == ']';
+    public static Set<String> sources(byte[] input) {
+        var sources = new LinkedHashSet<String>();
+
+        for (int position = 0; position < input.length; position++) {
+            if (input[position] != '#' || (position != 0 && input[position - 1] != '\n')) continue;
+
+            int start = position + 1;
+            while (start < input.length && (CLASSES[input[start] & 0xff] & WS) != 0) start += 1;
+
+            position = start;
+            while (position < input.length && (CLASSES[input[position] & 0xff] & WS_OR_LF) == 0) position += 1;
+
+            if (position > start) sources.add(new String(input, start, position - start, StandardCharsets.ISO_8859_1));
+        }
+
+        return sources;
     }
 
-    public Token nextToken() throws IOException {
-        start:
+    public TokenStream tokenize() {
         while (true) {
-            skipWhile(this::isWsOrLf);
+            position = skipWhile(position, WS_OR_LF);
             processLocationDirective();
 
-            text.setLength(0);
-            startLocation = new Location(currentPath, currentLine, currentColumn);
+            int line = currentLine;
+            int column = columnAt(position);
+            int start = position;
 
-            int value = advance();
+            if (position >= input.length) {
+                tokens.add(TokenType.EOF, null, "", start, start, currentFile, line, column);
+                return tokens;
+            }
 
-            if (value < 0) return emitToken(TokenType.EOF);
+            int value = input[position++] & 0xff;
 
             if (value == '"' || value == '\'') {
                 boolean isEscape = false;
 
                 while (true) {
-                    int stringChar = advance();
-
-                    if (stringChar < 0) {
+                    if (position >= input.length) {
                         error("unterminated string literal");
                         break;
                     }
 
+                    int stringChar = input[position++];
+
+                    if (stringChar == '\n') {
+                        currentLine += 1;
+                        lineOffset = position;
+                    }
+
                     if (!isEscape) {
                         if (stringChar == value) {
                             break;
@@ -173,59 +378,49 @@ public class Lexer {
                         isEscape = false;
                     }
                 }
-
-                return emitToken(value == '"' ? TokenType.STRING : TokenType.CHAR);
-            } else if (isWsOrLfOrKc(value)) {
-                return emitToken(switch (value) {
-                    case '!' -> TokenType.EXCL;
-                    case '@' -> TokenType.AT;
-                    case '(' -> TokenType.LPAREN;
-                    case ')' -> TokenType.RPAREN;
-                    case '[' -> TokenType.LBRACK;
-                    case ']' -> TokenType.RBRACK;
-                    default -> throw new IllegalStateException("unknown key char '%c'".formatted((char) value));
-                });
+            } else if ((CLASSES[value] & KEY) == 0) {
+                position = skipUntil(position, DELIMITER);
             }
 
-            skipUntil(this::isWsOrLfOrKc);
-
-            String text = this.text.toString();
-            TokenType type = OPERATORS.get(text);
-
-            if (type == null) {
-                if (value == '-' || value == '+' || isDigit(value)) {
-                    type = TokenType.INTEGER;
-
-                    try {
-                        Utils.parseInteger(text);
-                    } catch (NumberFormatException ignored) {
-                        error("unrecognized token '%s'".formatted(text));
-                        continue;
-                    }
-                } else if (isIdentStart(value)) {
-                    for (int i = 1; i < text.length(); i++) {
-                        if (!isIdentPart(text.charAt(i))) {
-                            error("unrecognized token '%s'".formatted(text));
-                            continue start;
-                        }
-                    }
+            var name = intern(start, position);
 
-                    type = TokenType.IDENTIFIER;
-                } else {
-                    error("unrecognized token '%s'".formatted(text));
-                    continue;
-                }
+            if (name.type() == null) {
+                error("unrecognized token '%s'".formatted(name.text()));
+                continue;
             }
 
-            return new Token(type, text, startLocation);
+            tokens.add(name.type(), name.keyword(), name.text(), start, position, currentFile, line, column);
         }
     }
 
     static {
         for (TokenType type : TokenType.values()) {
             if (type.text != null) {
-                OPERATORS.put(type.text, type);
+                PREDEFINED.add(new Name(type.text, type, null));
             }
         }
+
+        for (Keyword keyword : Keyword.values()) {
+            PREDEFINED.add(new Name(keyword.text, TokenType.IDENTIFIER, keyword));
+        }
+
+        CLASSES[' '] = WS;
+        CLASSES['\t'] = WS;
+        CLASSES['\n'] = LF;
+
+        for (char c : "!@()[]".toCharArray()) {
+            CLASSES[c] = KEY;
+        }
+
+        for (char c = '0'; c <= '9'; c++) {
+            CLASSES[c] = DIGIT;
+        }
+
+        for (char c = 'A'; c <= 'Z'; c++) {
+            CLASSES[c] = IDENT_START;
+            CLASSES[c + 'a' - 'A'] = IDENT_START;
+        }
+
+        CLASSES['_'] = IDENT_START;
     }
 }
@@ -1,37 +1,165 @@
+import object.Cache;
+import object.ElfConvert;
+import object.LoadOptions;
+import object.ObjectFile;
+
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 
 public class Main {
     public static final int WORD_SIZE = 4;
     public static final int PTR_SIZE = 4;
-    public static int errors = 0;
 
     public static void main(String[] args) throws IOException {
-        if (args.length != 2) {
-            System.err.println("usage: dfrttrans INPUT OUTPUT");
+        if (args.length == 2 && args[0].equals("--server")) {
+            Server.run(Path.of(args[1]));
+            return;
+        }
+
+        if (args.length >= 1 && args[0].equals("--batch")) {
+            System.exit(Batch.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        if (args.length < 2 || args.length != options(args) + 2) {
+            System.err.println("usage: dfrttrans [OPTION]... INPUT OUTPUT");
+            System.err.println("       dfrttrans --batch [OPTION]... [INPUT OUTPUT | @FILE]...");
+            System.err.println("       dfrttrans --server SOCKET");
+            System.err.println("server jobs: [OPTION]... INPUT OUTPUT");
+            System.err.println("             elfconvert [--gc-sections] [--keep=NAME]... [--rodata] [--restat] [--cache=DIR] INPUT OUTPUT");
+            System.err.println("options: --nonvolatile --private-regparm --regparm=DIR[:DIR]... --deps --rodata --restat");
+            System.err.println("         --cc=COMMAND");
+            System.err.println("         --cache=DIR");
             System.exit(2);
         }
 
-        ProtoFile proto;
+        System.exit(execute(Path.of(""), args, System.out));
+    }
+
+    public static int options(String[] args) {
+        int count = 0;
 
-        try (var stream = new BufferedInputStream(new FileInputStream(args[0]))) {
-            proto = Parser.parse(stream, args[0]);
+        while (count < args.length && args[count].startsWith("--")) {
+            count += 1;
         }
 
-        if (errors != 0) System.exit(1);
+        return count;
+    }
+
+    public static int execute(Path directory, String[] args, PrintStream diagnostics) {
+        try {
+            if (args.length >= 3 && args[0].equals("elfconvert")) {
+                var job = Arrays.copyOfRange(args, 1, args.length);
+                int count = ElfConvert.options(job);
+
+                if (job.length != count + 2) {
+                    diagnostics.println("dfrttrans: malformed job");
+                    return 2;
+                }
 
-        AstFile file = proto.convertToAst();
+                var options = LoadOptions.parse(job, count);
+                var input = directory.resolve(job[count]);
+                var output = directory.resolve(job[count + 1]);
 
-        if (errors != 0) System.exit(1);
+                return Cache.run(Cache.open(directory, job, count, diagnostics), "elfconvert", job, count, input, output, () -> {
+                    ObjectFile.loadElf(input.toString(), options).writeXloff(output.toString(), options.restat());
+                    return 0;
+                });
+            }
+
+            boolean volatileAccess = true;
+            boolean privateRegisterArguments = false;
+            boolean readOnlyStrings = false;
+            boolean restat = false;
+            var registerArgumentRoots = new ArrayList<Path>();
+            boolean dependencies = false;
+            String compiler = null;
+            var conversion = new ArrayList<String>();
+            int count = options(args);
+
+            for (int i = 0; i < count; i++) {
+                if (args[i].equals("--nonvolatile")) {
+                    volatileAccess = false;
+                } else if (args[i].equals("--private-regparm")) {
+                    privateRegisterArguments = true;
+                } else if (args[i].startsWith("--regparm=")) {
+                    for (var root : args[i].substring(10).split(":")) {
+                        if (!root.isEmpty()) registerArgumentRoots.add(directory.resolve(root).toAbsolutePath().normalize());
+                    }
+                } else if (args[i].equals("--deps")) {
+                    dependencies = true;
+                } else if (args[i].equals("--rodata")) {
+                    readOnlyStrings = true;
+                    conversion.add(args[i]);
+                } else if (args[i].equals("--restat")) {
+                    restat = true;
+                    conversion.add(args[i]);
+                } else if (args[i].startsWith("--cc=")) {
+                    compiler = args[i].substring(5);
+                } else if (!Cache.isOption(args[i])) {
+                    conversion.add(args[i]);
+                }
+            }
+
+            if (compiler == null) {
+                conversion.remove("--rodata");
+                conversion.remove("--restat");
 
-        try (var stream = new PrintStream(args[1])) {
-            for (var sym : file.symbols()) {
-                sym.print(stream);
+                if (!conversion.isEmpty()) {
+                    diagnostics.printf("dfrttrans: unknown option '%s'%n", conversion.getFirst());
+                    return 2;
+                }
             }
 
-            for (var def : file.definitions()) {
-                stream.printf("__attribute__((section(%s))) ", Utils.escapeString(def.section()));
-                def.print(stream);
+            if (args.length == count + 2) {
+                var input = args[count];
+                var output = args[count + 1];
+                var translator = new Translator(volatileAccess, privateRegisterArguments, readOnlyStrings, restat, directory, registerArgumentRoots);
+                var cache = Cache.open(directory, args, count, diagnostics);
+                var roots = "--regparm=" + String.join(":", registerArgumentRoots.stream().map(Path::toString).toList());
+                var flags = Arrays.stream(args, 0, count)
+                        .filter(arg -> !arg.equals("--deps"))
+                        .map(arg -> arg.startsWith("--regparm=") ? roots : arg)
+                        .toArray(String[]::new);
+                var sources = dependencies ? new LinkedHashSet<String>() : null;
+                int status;
+
+                if (compiler != null) {
+                    LoadOptions options;
+
+                    try {
+                        options = LoadOptions.parse(conversion.toArray(String[]::new), conversion.size());
+                    } catch (IllegalArgumentException e) {
+                        diagnostics.println("dfrttrans: " + e.getMessage());
+                        return 2;
+                    }
+
+                    var driver = new Driver(translator, compiler, options);
+                    status = Cache.run(cache, cache != null ? "compile\0" + driver.identity() : "compile", flags, flags.length, directory.resolve(input), directory.resolve(output),
+                            () -> driver.compile(directory, directory.resolve(input), input, directory.resolve(output), diagnostics, sources));
+                } else {
+                    status = Cache.run(cache, "translate", flags, flags.length, directory.resolve(input), directory.resolve(output),
+                            () -> translator.translate(directory.resolve(input), input, directory.resolve(output), diagnostics, sources));
+                }
+
+                if (status == 0 && dependencies) {
+                    // the lexer records every location directive it processes; only a
+                    // cache hit, which skips lexing, has to pick them out of the input
+                    if (sources.isEmpty()) sources.addAll(Lexer.sources(Files.readAllBytes(directory.resolve(input))));
+                    Dependencies.write(directory.resolve(output + ".d"), output, sources);
+                }
+
+                return status;
+            } else {
+                diagnostics.println("dfrttrans: malformed job");
+                return 2;
             }
+        } catch (IOException | RuntimeException e) {
+            diagnostics.printf("%s: %s%n", args[args.length - 2], e);
+            return 1;
         }
     }
 }
@@ -1,94 +1,100 @@
-import java.io.IOException;
-import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Locale;
 
 public class Parser {
-    private final Lexer lexer;
+    private final TokenStream tokens;
     private final ProtoFile file;
-    private Token nextToken;
+    private final CompilationContext context;
+    private int position;
     private String dataSection = "data";
     private String bssSection = "bss";
+    private String roSection = "text";
+    private boolean volatileAccess = false;
     private ProtoDefinition.Sym.Function currentFunction;
     private ProtoOperation.Block rootBlock;
 
-    private Parser(Lexer lexer, ProtoFile file) {
-        this.lexer = lexer;
+    private Parser(TokenStream tokens, ProtoFile file) {
+        this.tokens = tokens;
         this.file = file;
+        this.context = file.context;
     }
 
-    private ProtoDefinition parseDefinition() throws IOException {
-        var token = expect(TokenType.IDENTIFIER);
+    private ProtoDefinition parseDefinition() {
+        int token = expect(TokenType.IDENTIFIER);
 
-        return switch (token.text()) {
-            case "const" -> parseConstant();
-            case "extern" -> parseExtern();
-            case "externptr" -> parseExternPtr();
-            case "struct" -> {
+        return switch (tokens.keyword(token)) {
+            case CONST -> parseConstant();
+            case EXTERN -> parseExtern();
+            case EXTERNPTR -> parseExternPtr();
+            case STRUCT -> {
                 parseStruct();
                 yield null;
             }
-            case "fnptr" -> parseFunctionType();
-            case "fn" -> parseFunction();
-            case "datasection" -> {
-                dataSection = Utils.unescapeString(expect(TokenType.STRING).text());
+            case FNPTR -> parseFunctionType();
+            case FN -> parseFunction();
+            case DATASECTION -> {
+                dataSection = Utils.unescapeString(tokens.text(expect(TokenType.STRING)));
                 yield null;
             }
-            case "bsssection" -> {
-                bssSection = Utils.unescapeString(expect(TokenType.STRING).text());
+            case BSSSECTION -> {
+                bssSection = Utils.unescapeString(tokens.text(expect(TokenType.STRING)));
                 yield null;
             }
-            case "rosection" -> {
-                expect(TokenType.STRING);
+            case ROSECTION -> {
+                roSection = Utils.unescapeString(tokens.text(expect(TokenType.STRING)));
                 yield null;
             }
-            case "buffer" -> parseBuffer();
-            case "table" -> parseTable();
-            case "var" -> parseVariable();
-            case "public" -> {
-                var name = expect(TokenType.IDENTIFIER);
-                var value = file.resolve(name.text());
+            case FILEVOLATILE -> {
+                volatileAccess = true;
+                yield null;
+            }
+            case BUFFER -> parseBuffer();
+            case TABLE -> parseTable();
+            case VAR -> parseVariable();
+            case PUBLIC -> {
+                int name = expect(TokenType.IDENTIFIER);
+                var value = file.resolve(tokens.text(name));
 
                 if (value != null) {
                     if (value instanceof ProtoDefinition.Sym<?> sym) {
                         sym.externallyVisible = true;
                     } else {
-                        name.error("don't know what to do with this kind of symbol");
+                        error(name, "don't know what to do with this kind of symbol");
                     }
                 } else {
-                    name.error("unrecognized symbol '%s'".formatted(name.text()));
+                    error(name, "unrecognized symbol '%s'".formatted(tokens.text(name)));
                 }
 
                 yield null;
             }
-            default -> {
-                token.error("unrecognized definition type");
+            case null, default -> {
+                error(token, "unrecognized definition type");
                 yield null;
             }
         };
     }
 
-    private ProtoDefinition.Constant parseConstant() throws IOException {
-        var name = expect(TokenType.IDENTIFIER);
+    private ProtoDefinition.Constant parseConstant() {
+        var name = expectToken(TokenType.IDENTIFIER);
         var value = parseInitializer();
 
         return new ProtoDefinition.Constant(name, value);
     }
 
-    private ProtoDefinition.Sym.Function parseExtern() throws IOException {
-        var name = expect(TokenType.IDENTIFIER);
+    private ProtoDefinition.Sym.Function parseExtern() {
+        var name = expectToken(TokenType.IDENTIFIER);
         expect(TokenType.LBRACE);
-        var varargs = consume(TokenType.DOT_DOT_DOT);
+        var varargs = consumeToken(TokenType.DOT_DOT_DOT);
         var arguments = new ArrayList<Token>();
         var returns = new ArrayList<Token>();
 
-        while (consume(TokenType.MINUS_MINUS) == null) {
-            arguments.addFirst(expect(TokenType.IDENTIFIER));
+        while (consume(TokenType.MINUS_MINUS) < 0) {
+            arguments.addFirst(expectToken(TokenType.IDENTIFIER));
         }
 
-        while (consume(TokenType.RBRACE) == null) {
-            returns.add(expect(TokenType.IDENTIFIER));
+        while (consume(TokenType.RBRACE) < 0) {
+            returns.add(expectToken(TokenType.IDENTIFIER));
         }
 
         var func = new ProtoDefinition.Sym.Function(name, arguments, returns, varargs);
@@ -96,48 +102,49 @@ public class Parser {
         return func;
     }
 
-    private ProtoDefinition.Sym.Variable parseExternPtr() throws IOException {
-        var name = expect(TokenType.IDENTIFIER);
+    private ProtoDefinition.Sym.Variable parseExternPtr() {
+        var name = expectToken(TokenType.IDENTIFIER);
         var variable = new ProtoDefinition.Sym.Variable(name, dataSection, bssSection, null);
         variable.externallyVisible = true;
         return variable;
     }
 
-    private ProtoOperation parseInitializer() throws IOException {
-        var token = advance();
-
-        if (token.type() == TokenType.INTEGER) {
-            return new ProtoOperation.Int(token, Utils.parseInteger(token.text()));
-        } else if (token.type() == TokenType.CHAR) {
-            return new ProtoOperation.Int(token, parseCharLiteral(token.text()));
-        } else if (token.type() == TokenType.STRING) {
-            return new ProtoOperation.Str(token, Utils.unescapeString(token.text()));
-        } else if (token.type() == TokenType.IDENTIFIER) {
-            if (token.text().equals("pointerof")) {
-                return new ProtoOperation.Pointerof(expect(TokenType.IDENTIFIER));
-            }
+    private ProtoOperation parseInitializer() {
+        int token = advance();
+
+        return switch (tokens.type(token)) {
+            case INTEGER -> new ProtoOperation.Int(tokens.token(token), Utils.parseInteger(tokens.text(token)));
+            case CHAR -> new ProtoOperation.Int(tokens.token(token), parseCharLiteral(tokens.text(token)));
+            case STRING -> new ProtoOperation.Str(tokens.token(token), Utils.unescapeString(tokens.text(token)), roSection);
+            case IDENTIFIER -> {
+                if (tokens.keyword(token) == Keyword.POINTEROF) {
+                    var name = expectToken(TokenType.IDENTIFIER);
+                    file.addressTaken.add(name.text());
+                    yield new ProtoOperation.Pointerof(name);
+                }
 
-            return new ProtoOperation.Sym(token);
-        } else if (token.type() == TokenType.LPAREN) {
-            return parseBlock(TokenType.RPAREN, ")");
-        } else {
-            token.error("expected initializer");
-            return new ProtoOperation.Int(token, 0);
-        }
+                yield new ProtoOperation.Sym(tokens.token(token));
+            }
+            case LPAREN -> parseBlock(TokenType.RPAREN, null);
+            default -> {
+                error(token, "expected initializer");
+                yield new ProtoOperation.Int(tokens.token(token), 0);
+            }
+        };
     }
 
-    private ProtoOperation parseIf(Token token) throws IOException {
+    private ProtoOperation parseIf(Token token) {
         expect(TokenType.LPAREN);
-        var condition = parseBlock(TokenType.RPAREN, ")");
-        var trueBody = parseBlock(TokenType.IDENTIFIER, "end");
+        var condition = parseBlock(TokenType.RPAREN, null);
+        var trueBody = parseBlock(TokenType.IDENTIFIER, Keyword.END);
         ProtoOperation falseBody;
 
-        var elseIfToken = consumeIdent("elseif");
+        int elseIfToken = consumeKeyword(Keyword.ELSEIF);
 
-        if (elseIfToken != null) {
-            falseBody = parseIf(elseIfToken);
-        } else if (consumeIdent("else") != null) {
-            falseBody = parseBlock(TokenType.IDENTIFIER, "end");
+        if (elseIfToken >= 0) {
+            falseBody = parseIf(tokens.token(elseIfToken));
+        } else if (consumeKeyword(Keyword.ELSE) >= 0) {
+            falseBody = parseBlock(TokenType.IDENTIFIER, Keyword.END);
         } else {
             falseBody = null;
         }
@@ -145,38 +152,57 @@ public class Parser {
         return new ProtoOperation.If(token, condition, trueBody, falseBody);
     }
 
-    private ProtoOperation parseBlock(TokenType terminator, String terminatorText) throws IOException {
+    private ProtoOperation parseBlock(TokenType terminator, Keyword terminatorKeyword) {
         var block = new ProtoOperation.Block(new ArrayList<>());
 
         boolean root = rootBlock == null;
         if (root) rootBlock = block;
 
-        for (var token = advance(); token.type() != terminator || !token.text().equals(terminatorText); token = advance()) {
+        for (int index = advance(); tokens.type(index) != terminator || tokens.keyword(index) != terminatorKeyword; index = advance()) {
+            var token = tokens.token(index);
+
             switch (token.type()) {
                 case IDENTIFIER -> {
-                    switch (token.text()) {
-                        case "if" -> block.operations().add(parseIf(token));
-                        case "while" -> {
+                    switch (tokens.keyword(index)) {
+                        case IF -> block.operations().add(parseIf(token));
+                        case WHILE -> {
                             expect(TokenType.LPAREN);
-                            var condition = parseBlock(TokenType.RPAREN, ")");
-                            var body = parseBlock(TokenType.IDENTIFIER, "end");
+                            var condition = parseBlock(TokenType.RPAREN, null);
+                            var body = parseBlock(TokenType.IDENTIFIER, Keyword.END);
                             block.operations().add(new ProtoOperation.While(token, condition, body));
                         }
-                        case "auto" ->
-                                rootBlock.operations().addFirst(new ProtoOperation.DeclareVariable(expect(TokenType.IDENTIFIER)));
-                        case "fnsection" -> {
-                            var name = expect(TokenType.STRING);
+                        case AUTO ->
+                                rootBlock.operations().addFirst(new ProtoOperation.DeclareVariable(expectToken(TokenType.IDENTIFIER)));
+                        case FNSECTION -> {
+                            int name = expect(TokenType.STRING);
 
                             if (currentFunction != null) {
-                                currentFunction.section = Utils.unescapeString(name.text());
+                                currentFunction.section = Utils.unescapeString(tokens.text(name));
+                            } else {
+                                token.error(context, "fnsection outside function");
+                            }
+                        }
+                        case ROSECTION -> roSection = Utils.unescapeString(tokens.text(expect(TokenType.STRING)));
+                        case FNVOLATILE -> {
+                            if (currentFunction != null) {
+                                currentFunction.volatileAccess = true;
                             } else {
-                                token.error("fnsection outside function");
+                                token.error(context, "fnvolatile outside function");
                             }
                         }
-                        case "rosection" -> {
+                        case VOLATILE -> {
+                            var access = parseAccess(position, true);
+
+                            if (access != null) {
+                                advance();
+                                block.operations().add(access);
+                            } else {
+                                token.error(context, "expected memory access after volatile");
+                            }
                         }
-                        case "pointerof" -> {
-                            var name = expect(TokenType.IDENTIFIER);
+                        case POINTEROF -> {
+                            var name = expectToken(TokenType.IDENTIFIER);
+                            file.addressTaken.add(name.text());
 
                             if (file.resolve(name.text()) == null) {
                                 var proto = new ProtoDefinition.Sym.Variable(name, "", "", null);
@@ -186,25 +212,24 @@ public class Parser {
 
                             block.operations().add(new ProtoOperation.Pointerof(name));
                         }
-                        case "swap", "bswap" -> token.error("TODO %s".formatted(token.text()));
-                        case "return" -> block.operations().add(new ProtoOperation.Basic(token, "goto ret;"));
-                        case "drop" -> block.operations().add(new ProtoOperation.Drop(token));
-                        case "alloc" -> block.operations().add(new ProtoOperation.StackAllocate(token));
-                        case "gb" -> block.operations().add(new ProtoOperation.ReadByte(token));
-                        case "break" -> block.operations().add(new ProtoOperation.Basic(token, "break;"));
-                        case "sb" -> block.operations().add(new ProtoOperation.WriteByte(token));
-                        case "gi" -> block.operations().add(new ProtoOperation.ReadShort(token));
-                        case "si" -> block.operations().add(new ProtoOperation.WriteShort(token));
-                        case "continue" -> block.operations().add(new ProtoOperation.Basic(token, "continue;"));
-                        case "_max" -> block.operations().add(new ProtoOperation.Max(token));
-                        case "dup" -> block.operations().add(new ProtoOperation.Dup(token));
-                        default -> block.operations().add(new ProtoOperation.Sym(token));
+                        case SWAP, BSWAP -> token.error(context, "TODO %s".formatted(token.text()));
+                        case GB, SB, GI, SI -> block.operations().add(parseAccess(index, false));
+                        case RETURN -> block.operations().add(new ProtoOperation.Basic(token, "goto ret;"));
+                        case DROP -> block.operations().add(new ProtoOperation.Drop(token));
+                        case ALLOC -> block.operations().add(new ProtoOperation.StackAllocate(token));
+                        case BREAK -> block.operations().add(new ProtoOperation.Basic(token, "break;"));
+                        case CONTINUE -> block.operations().add(new ProtoOperation.Basic(token, "continue;"));
+                        case _MAX -> block.operations().add(new ProtoOperation.Max(token));
+                        case DUP -> block.operations().add(new ProtoOperation.Dup(token));
+                        case null, default -> block.operations().add(new ProtoOperation.Sym(token));
                     }
                 }
                 case INTEGER -> block.operations().add(new ProtoOperation.Int(token, Utils.parseInteger(token.text())));
                 case CHAR -> block.operations().add(new ProtoOperation.Int(token, parseCharLiteral(token.text())));
                 case STRING ->
-                        block.operations().add(new ProtoOperation.Str(token, Utils.unescapeString(token.text())));
+                        block.operations().add(new ProtoOperation.Str(token, Utils.unescapeString(token.text()), roSection));
+                case AT, EXCL, PLUS_EQ, MINUS_EQ, GT_GT_EQ, LT_LT_EQ, AND_EQ, PIPE_EQ, PERCENT_EQ, SLASH_EQ, STAR_EQ ->
+                        block.operations().add(parseAccess(index, false));
                 case STAR -> block.operations().add(new ProtoOperation.Multiply(token));
                 case GT_GT -> block.operations().add(new ProtoOperation.RightShift(token));
                 case MINUS -> block.operations().add(new ProtoOperation.Subtract(token));
@@ -213,29 +238,21 @@ public class Parser {
                 case PLUS -> block.operations().add(new ProtoOperation.Add(token));
                 case PIPE -> block.operations().add(new ProtoOperation.BitOr(token));
                 case SLASH -> block.operations().add(new ProtoOperation.Divide(token));
-                case EXCL -> block.operations().add(new ProtoOperation.Write(token, "="));
-                case AT -> block.operations().add(new ProtoOperation.Read(token));
                 case LT -> block.operations().add(new ProtoOperation.LowerThan(token));
                 case EQ_EQ -> block.operations().add(new ProtoOperation.Equal(token));
-                case PLUS_EQ -> block.operations().add(new ProtoOperation.Write(token, "+="));
                 case TILDE_EQ -> block.operations().add(new ProtoOperation.NotEqual(token));
                 case AND -> block.operations().add(new ProtoOperation.BitAnd(token));
                 case GT_EQ -> block.operations().add(new ProtoOperation.GreaterEqual(token));
                 case TILDE_TILDE -> block.operations().add(new ProtoOperation.LogicNot(token));
                 case PERCENT -> block.operations().add(new ProtoOperation.Modulo(token));
-                case MINUS_EQ -> block.operations().add(new ProtoOperation.Write(token, "-="));
                 case GT -> block.operations().add(new ProtoOperation.GreaterThan(token));
                 case LBRACK -> {
-                    var index = parseBlock(TokenType.RBRACK, "]");
-                    var name = expect(TokenType.IDENTIFIER);
-                    block.operations().add(new ProtoOperation.Index(token, index, name));
+                    var offset = parseBlock(TokenType.RBRACK, null);
+                    var name = expectToken(TokenType.IDENTIFIER);
+                    block.operations().add(new ProtoOperation.Index(token, offset, name));
                 }
-                case GT_GT_EQ -> block.operations().add(new ProtoOperation.Write(token, ">>="));
-                case LT_LT_EQ -> block.operations().add(new ProtoOperation.Write(token, "<<="));
                 case LT_EQ -> block.operations().add(new ProtoOperation.LowerEqual(token));
                 case AND_AND -> block.operations().add(new ProtoOperation.LogicAnd(token));
-                case AND_EQ -> block.operations().add(new ProtoOperation.Write(token, "&="));
-                case PIPE_EQ -> block.operations().add(new ProtoOperation.Write(token, "|="));
                 case Z_LT -> block.operations().add(new ProtoOperation.LowerThanZero(token));
                 case Z_GT -> block.operations().add(new ProtoOperation.GreaterThanZero(token));
                 case S_LT -> block.operations().add(new ProtoOperation.LowerThanSigned(token));
@@ -243,16 +260,13 @@ public class Parser {
                 case S_GT -> block.operations().add(new ProtoOperation.GreaterThanSigned(token));
                 case S_GT_EQ -> block.operations().add(new ProtoOperation.GreaterEqualSigned(token));
                 case CARET -> block.operations().add(new ProtoOperation.Xor(token));
-                case PERCENT_EQ -> block.operations().add(new ProtoOperation.Write(token, "%="));
                 case PIPE_PIPE -> block.operations().add(new ProtoOperation.LogicOr(token));
-                case SLASH_EQ -> block.operations().add(new ProtoOperation.Write(token, "/="));
-                case STAR_EQ -> block.operations().add(new ProtoOperation.Write(token, "*="));
                 case EOF -> {
-                    token.error("unexpected eof");
+                    token.error(context, "unexpected eof");
                     terminator = TokenType.EOF;
-                    terminatorText = "";
+                    terminatorKeyword = null;
                 }
-                default -> token.error("unrecognized operation");
+                default -> token.error(context, "unrecognized operation");
             }
         }
 
@@ -261,6 +275,32 @@ public class Parser {
         return block;
     }
 
+    private ProtoOperation parseAccess(int index, boolean isVolatile) {
+        var token = tokens.token(index);
+
+        return switch (token.type()) {
+            case AT -> new ProtoOperation.Read(token, isVolatile);
+            case EXCL -> new ProtoOperation.Write(token, "=", isVolatile);
+            case PLUS_EQ -> new ProtoOperation.Write(token, "+=", isVolatile);
+            case MINUS_EQ -> new ProtoOperation.Write(token, "-=", isVolatile);
+            case GT_GT_EQ -> new ProtoOperation.Write(token, ">>=", isVolatile);
+            case LT_LT_EQ -> new ProtoOperation.Write(token, "<<=", isVolatile);
+            case AND_EQ -> new ProtoOperation.Write(token, "&=", isVolatile);
+            case PIPE_EQ -> new ProtoOperation.Write(token, "|=", isVolatile);
+            case PERCENT_EQ -> new ProtoOperation.Write(token, "%=", isVolatile);
+            case SLASH_EQ -> new ProtoOperation.Write(token, "/=", isVolatile);
+            case STAR_EQ -> new ProtoOperation.Write(token, "*=", isVolatile);
+            case IDENTIFIER -> switch (tokens.keyword(index)) {
+                case GB -> new ProtoOperation.ReadByte(token, isVolatile);
+                case SB -> new ProtoOperation.WriteByte(token, isVolatile);
+                case GI -> new ProtoOperation.ReadShort(token, isVolatile);
+                case SI -> new ProtoOperation.WriteShort(token, isVolatile);
+                case null, default -> null;
+            };
+            default -> null;
+        };
+    }
+
     private int parseCharLiteral(String text) {
         int value = 0;
 
@@ -271,13 +311,13 @@ public class Parser {
         return value;
     }
 
-    private void parseStruct() throws IOException {
-        var baseName = expect(TokenType.IDENTIFIER);
+    private void parseStruct() {
+        var baseName = expectToken(TokenType.IDENTIFIER);
         var structure = new ArrayList<ProtoDefinition.StructureField>();
 
-        while (consumeIdent("endstruct") == null) {
+        while (consumeKeyword(Keyword.ENDSTRUCT) < 0) {
             var size = parseInitializer();
-            var name = expect(TokenType.IDENTIFIER);
+            var name = expectToken(TokenType.IDENTIFIER);
             var field = new ProtoDefinition.StructureField(
                     new Token(TokenType.IDENTIFIER, "%s_%s".formatted(baseName.text(), name.text()), name.location()),
                     structure, structure.size(), size
@@ -295,57 +335,58 @@ public class Parser {
         file.add(field);
     }
 
-    private ProtoDefinition.Sym.FunctionType parseFunctionType() throws IOException {
-        var name = expect(TokenType.IDENTIFIER);
+    private ProtoDefinition.Sym.FunctionType parseFunctionType() {
+        var name = expectToken(TokenType.IDENTIFIER);
         expect(TokenType.LBRACE);
-        var varargs = consume(TokenType.DOT_DOT_DOT) != null;
+        var varargs = consume(TokenType.DOT_DOT_DOT) >= 0;
         int arguments = 0;
         var returns = new ArrayList<Token>();
 
-        while (consume(TokenType.MINUS_MINUS) == null) {
+        while (consume(TokenType.MINUS_MINUS) < 0) {
             expect(TokenType.IDENTIFIER);
             arguments += 1;
         }
 
-        while (consume(TokenType.RBRACE) == null) {
-            returns.add(expect(TokenType.IDENTIFIER));
+        while (consume(TokenType.RBRACE) < 0) {
+            returns.add(expectToken(TokenType.IDENTIFIER));
         }
 
         return new ProtoDefinition.Sym.FunctionType(name, arguments, returns, varargs);
     }
 
-    private ProtoDefinition.Sym.Function parseFunction() throws IOException {
+    private ProtoDefinition.Sym.Function parseFunction() {
         Token type = null;
 
-        if (consume(TokenType.LPAREN) != null) {
-            type = expect(TokenType.IDENTIFIER);
+        if (consume(TokenType.LPAREN) >= 0) {
+            type = expectToken(TokenType.IDENTIFIER);
             expect(TokenType.RPAREN);
         }
 
-        boolean externallyVisible = consumeIdent("private") == null;
+        boolean externallyVisible = consumeKeyword(Keyword.PRIVATE) < 0;
         var func = parseExtern();
         func.type = type;
         func.section = "text";
+        func.volatileAccess = volatileAccess;
         func.externallyVisible = externallyVisible;
 
         currentFunction = func;
-        func.body = parseBlock(TokenType.IDENTIFIER, "end");
+        func.body = parseBlock(TokenType.IDENTIFIER, Keyword.END);
         currentFunction = null;
 
         return func;
     }
 
-    private ProtoDefinition.Sym.Buffer parseBuffer() throws IOException {
-        var name = expect(TokenType.IDENTIFIER);
+    private ProtoDefinition.Sym.Buffer parseBuffer() {
+        var name = expectToken(TokenType.IDENTIFIER);
         var size = parseInitializer();
 
         return new ProtoDefinition.Sym.Buffer(name, bssSection, size);
     }
 
-    private ProtoDefinition.Sym<AstSymbol.Location.Table> parseTable() throws IOException {
-        var name = expect(TokenType.IDENTIFIER);
+    private ProtoDefinition.Sym<AstSymbol.Location.Table> parseTable() {
+        var name = expectToken(TokenType.IDENTIFIER);
 
-        if (consume(TokenType.LBRACK) != null) {
+        if (consume(TokenType.LBRACK) >= 0) {
             var count = parseInitializer();
             expect(TokenType.RBRACK);
             return new ProtoDefinition.Sym.EmptyTable(name, bssSection, count);
@@ -353,59 +394,69 @@ public class Parser {
 
         var values = new ArrayList<ProtoOperation>();
 
-        while (consumeIdent("endtable") == null) {
+        while (consumeKeyword(Keyword.ENDTABLE) < 0) {
             values.add(parseInitializer());
         }
 
         return new ProtoDefinition.Sym.DataTable(name, dataSection, values);
     }
 
-    private ProtoDefinition.Sym.Variable parseVariable() throws IOException {
-        var name = expect(TokenType.IDENTIFIER);
+    private ProtoDefinition.Sym.Variable parseVariable() {
+        var name = expectToken(TokenType.IDENTIFIER);
         var value = parseInitializer();
 
         return new ProtoDefinition.Sym.Variable(name, dataSection, bssSection, value);
     }
 
-    private Token consume(TokenType type) throws IOException {
-        var token = peek();
-        if (token.type() == type) advance();
-        else return null;
-        return token;
+    private void error(int token, String message) {
+        tokens.location(token).error(context, message);
     }
 
-    private Token consumeIdent(String text) throws IOException {
-        var token = peek();
-        if (token.type() == TokenType.IDENTIFIER && token.text().equals(text)) advance();
-        else return null;
-        return token;
+    private int consume(TokenType type) {
+        if (tokens.type(position) != type) return -1;
+        return advance();
     }
 
-    private Token expect(TokenType type) throws IOException {
-        var token = advance();
-        if (token.type() != type) token.error("expected %s".formatted(type.name().toLowerCase(Locale.ENGLISH)));
-        return token;
+    private Token consumeToken(TokenType type) {
+        int token = consume(type);
+        return token >= 0 ? tokens.token(token) : null;
+    }
+
+    private int consumeKeyword(Keyword keyword) {
+        if (tokens.type(position) != TokenType.IDENTIFIER || tokens.keyword(position) != keyword) return -1;
+        return advance();
     }
 
-    private Token advance() throws IOException {
-        var token = peek();
-        nextToken = null;
+    private int expect(TokenType type) {
+        int token = advance();
+        if (tokens.type(token) != type) error(token, "expected %s".formatted(type.name().toLowerCase(Locale.ENGLISH)));
         return token;
     }
 
-    private Token peek() throws IOException {
-        if (nextToken == null) nextToken = lexer.nextToken();
-        return nextToken;
+    private Token expectToken(TokenType type) {
+        return tokens.token(expect(type));
+    }
+
+    private int advance() {
+        int token = position;
+        if (token < tokens.size() - 1) position += 1;
+        return token;
     }
 
-    public static ProtoFile parse(InputStream stream, String path) throws IOException {
-        var file = new ProtoFile(path);
-        var parser = new Parser(new Lexer(stream, path), file);
+    public static ProtoFile parse(byte[] input, String path, CompilationContext context) {
+        var file = new ProtoFile(path, context);
+        var parser = new Parser(new Lexer(input, path, context).tokenize(), file);
 
-        while (parser.peek().type() != TokenType.EOF) {
+        while (parser.tokens.type(parser.position) != TokenType.EOF) {
             var def = parser.parseDefinition();
             if (def == null) continue;
-            file.addOrReplace(def);
+
+            // a definition keeps the location of the extern it replaces, so that
+            // callers elsewhere see the same register convention
+            if (file.addOrReplace(def) instanceof ProtoDefinition.Sym.Function previous
+                    && def instanceof ProtoDefinition.Sym.Function function) {
+                function.declaration = previous.declaration;
+            }
         }
 
         return file;
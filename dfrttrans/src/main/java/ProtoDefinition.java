@@ -24,6 +24,10 @@ public abstract class ProtoDefinition {
             return symbol;
         }
 
+        public boolean isReferenced() {
+            return symbol != null;
+        }
+
         protected abstract T createSymbol(ProtoFile file);
 
         public AstDefinition createDefinition(ProtoFile file) {
@@ -50,7 +54,7 @@ public abstract class ProtoDefinition {
                     returnNames.add(Utils.transformName(ret.text()));
                 }
 
-                return new AstSymbol.FunctionType(Utils.transformName(name.text()), arguments + (varargs ? 2 : 0), returnNames, false);
+                return new AstSymbol.FunctionType(Utils.transformName(name.text()), arguments + (varargs ? 2 : 0), returnNames, false, file.context.registerArguments(name.location()));
             }
         }
 
@@ -60,10 +64,13 @@ public abstract class ProtoDefinition {
             public final Token varargs;
             public Token type;
             public String section = "";
+            public boolean volatileAccess;
             public ProtoOperation body;
+            public Location declaration;
 
             public Function(Token name, List<Token> arguments, List<Token> returns, Token varargs) {
                 super(name);
+                this.declaration = name.location();
                 this.arguments = arguments;
                 this.returns = returns;
                 this.varargs = varargs;
@@ -75,18 +82,18 @@ public abstract class ProtoDefinition {
                 var proto = file.resolve(type.text());
 
                 if (proto == null) {
-                    type.error("cannot resolve symbol '%s'".formatted(type.text()));
+                    type.error(file.context, "cannot resolve symbol '%s'".formatted(type.text()));
                     return null;
                 }
 
                 if (proto instanceof FunctionType funcTypeProto) {
-                    if (funcTypeProto.arguments != arguments.size()) type.error("mismatched argument count");
-                    if (funcTypeProto.returns.size() != returns.size()) type.error("mismatched return count");
-                    if (funcTypeProto.varargs == (varargs == null)) type.error("mismatched varargs status");
+                    if (funcTypeProto.arguments != arguments.size()) type.error(file.context, "mismatched argument count");
+                    if (funcTypeProto.returns.size() != returns.size()) type.error(file.context, "mismatched return count");
+                    if (funcTypeProto.varargs == (varargs == null)) type.error(file.context, "mismatched varargs status");
 
                     return funcTypeProto.getSymbol(file);
                 } else {
-                    type.error("'%s' is not a function type".formatted(type.text()));
+                    type.error(file.context, "'%s' is not a function type".formatted(type.text()));
                     return null;
                 }
             }
@@ -102,7 +109,9 @@ public abstract class ProtoDefinition {
                         returnNames.add(Utils.transformName(ret.text()));
                     }
 
-                    type = new AstSymbol.FunctionType(Utils.transformName(name.text()), arguments.size() + (varargs != null ? 2 : 0), returnNames, true);
+                    boolean registerArguments = file.context.registerArguments(declaration)
+                            || (file.context.privateRegisterArguments && !externallyVisible && !file.addressTaken.contains(name.text()));
+                    type = new AstSymbol.FunctionType(Utils.transformName(name.text()), arguments.size() + (varargs != null ? 2 : 0), returnNames, true, registerArguments);
                 }
 
                 return new AstSymbol.Location.Function(Utils.transformName(name.text()), externallyVisible, type);
@@ -112,7 +121,10 @@ public abstract class ProtoDefinition {
             public AstDefinition createDefinition(ProtoFile file) {
                 if (body == null) return null;
 
+                file.context.resetTemporaries();
+
                 var builder = new StatementBuilder(new Scope(file));
+                builder.volatileAccess |= volatileAccess;
                 var argSymbols = new ArrayList<AstSymbol.Location>();
                 var retSymbols = new ArrayList<AstSymbol.Location>();
 
@@ -265,7 +277,7 @@ public abstract class ProtoDefinition {
         public AstExpression.Literal getAstValue(ProtoFile file) {
             if (astValue == null) {
                 if (creating) {
-                    name.error("recursive constant initializers");
+                    name.error(file.context, "recursive constant initializers");
                     return new AstExpression.Literal.Int(0);
                 }
 
@@ -300,7 +312,7 @@ public abstract class ProtoDefinition {
         public AstExpression.Literal getAstSize(ProtoFile file) {
             if (astSize == null) {
                 if (creatingSize) {
-                    name.error("recursive constant initializers");
+                    name.error(file.context, "recursive constant initializers");
                     return new AstExpression.Literal.Int(0);
                 }
 
@@ -308,7 +320,7 @@ public abstract class ProtoDefinition {
                 astSize = StatementBuilder.buildLiteral(size, file, name.location());
 
                 if (!(astSize instanceof AstExpression.Literal.Int)) {
-                    name.error("size is not a constant integer");
+                    name.error(file.context, "size is not a constant integer");
                 }
             }
 
@@ -318,7 +330,7 @@ public abstract class ProtoDefinition {
         public AstExpression.Literal getAstOffset(ProtoFile file) {
             if (astOffset == null) {
                 if (creatingOffset) {
-                    name.error("recursive constant initializers");
+                    name.error(file.context, "recursive constant initializers");
                 }
 
                 creatingOffset = true;
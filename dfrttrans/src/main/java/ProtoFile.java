@@ -1,9 +1,16 @@
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class ProtoFile extends Scope {
-    public ProtoFile(String path) {
-        super(null);
+    public final Set<String> addressTaken = new HashSet<>();
+    private final Map<List<String>, AstExpression.Literal.Str> strings = new LinkedHashMap<>();
+
+    public ProtoFile(String path, CompilationContext context) {
+        super(context);
         var builtinLocation = new Location(path, 1, 1);
         addOrReplace(new ProtoDefinition.Constant(
                 new Token(TokenType.IDENTIFIER, "WORD", builtinLocation),
@@ -15,6 +22,14 @@ public class ProtoFile extends Scope {
         );
     }
 
+    public AstExpression.Literal.Str getString(String value, String section) {
+        // without --rodata nothing places these sections, so strings stay inline
+        if (section.equals("text") || !context.readOnlyStrings) return new AstExpression.Literal.Str(value);
+
+        return strings.computeIfAbsent(List.of(section, value),
+                key -> new AstExpression.Literal.Str(value, "_dfro" + strings.size(), ".rodata$" + section));
+    }
+
     public AstFile convertToAst() {
         List<AstSymbol> symbols = new ArrayList<>();
         List<AstDefinition> definitions = new ArrayList<>();
@@ -23,13 +38,17 @@ public class ProtoFile extends Scope {
             def.resolve(this);
 
             if (def instanceof ProtoDefinition.Sym<?> sym) {
-                symbols.add(sym.getSymbol(this));
-
                 var astDef = sym.createDefinition(this);
                 if (astDef != null) definitions.add(astDef);
             }
         }
 
-        return new AstFile(symbols, definitions);
+        for (var def : this.definitions.values()) {
+            if (def instanceof ProtoDefinition.Sym<?> sym && sym.isReferenced()) {
+                symbols.add(sym.getSymbol(this));
+            }
+        }
+
+        return new AstFile(symbols, List.copyOf(strings.values()), definitions);
     }
 }
@@ -11,10 +11,10 @@ public interface ProtoOperation {
         }
     }
 
-    record Str(Token token, String value) implements ProtoOperation {
+    record Str(Token token, String value, String section) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
-            builder.pushExpr(new AstExpression.Literal.Str(value));
+            builder.pushExpr(file.getString(value, section));
         }
     }
 
@@ -55,8 +55,7 @@ public interface ProtoOperation {
                     builder.add(new AstStatement.DeclareVariable(allSym, callExpr));
 
                     for (var ret : type.returns()) {
-                        var retSym = new AstSymbol.Location.Variable("%s.%s".formatted(allName, ret), false);
-                        builder.pushPureExpr(new AstExpression.Dereference(new AstExpression.Literal.Sym(retSym), ""));
+                        builder.pushTemporary(new AstSymbol.Location.Variable(allName + "." + ret, false));
                     }
                 }
             }
@@ -81,13 +80,13 @@ public interface ProtoOperation {
                         if (symbolDef.getSymbol(file) instanceof AstSymbol.Location location) {
                             builder.pushExpr(new AstExpression.Literal.Sym(location));
                         } else {
-                            token.error("don't know what to do for this kind of symbol");
+                            token.error(file.context, "don't know what to do for this kind of symbol");
                         }
                     }
-                    default -> token.error("don't know what to do for this kind of symbol");
+                    default -> token.error(file.context, "don't know what to do for this kind of symbol");
                 }
             } else {
-                token.error("unrecognized symbol '%s'".formatted(token.text()));
+                token.error(file.context, "unrecognized symbol '%s'".formatted(token.text()));
             }
         }
     }
@@ -105,9 +104,9 @@ public interface ProtoOperation {
                     }
                 }
 
-                token.error("don't know what to do with this kind of symbol");
+                token.error(file.context, "don't know what to do with this kind of symbol");
             } else {
-                token.error("unrecognized symbol '%s'".formatted(token.text()));
+                token.error(file.context, "unrecognized symbol '%s'".formatted(token.text()));
             }
         }
     }
@@ -121,38 +120,38 @@ public interface ProtoOperation {
         }
     }
 
-    record Read(Token token) implements ProtoOperation {
+    record Read(Token token, boolean isVolatile) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
-            builder.pushExpr(new AstExpression.Dereference(builder.popExpr(token.location()), "volatile "));
+            builder.pushExpr(new AstExpression.Dereference(builder.popExpr(token.location()), builder.getAccessPrefix(isVolatile)));
         }
     }
 
-    record ReadShort(Token token) implements ProtoOperation {
+    record ReadShort(Token token, boolean isVolatile) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
-            builder.pushExpr(new AstExpression.DereferenceShort(builder.popExpr(token.location()), "volatile "));
+            builder.pushExpr(new AstExpression.DereferenceShort(builder.popExpr(token.location()), builder.getAccessPrefix(isVolatile)));
         }
     }
 
-    record ReadByte(Token token) implements ProtoOperation {
+    record ReadByte(Token token, boolean isVolatile) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
-            builder.pushExpr(new AstExpression.DereferenceByte(builder.popExpr(token.location()), "volatile "));
+            builder.pushExpr(new AstExpression.DereferenceByte(builder.popExpr(token.location()), builder.getAccessPrefix(isVolatile)));
         }
     }
 
-    record Write(Token token, String operator) implements ProtoOperation {
+    record Write(Token token, String operator, boolean isVolatile) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
             builder.add(new AstStatement.Expression(new AstExpression.Write(
-                    new AstExpression.Dereference(builder.popExpr(token.location()), "volatile "), operator,
+                    new AstExpression.Dereference(builder.popExpr(token.location()), builder.getAccessPrefix(isVolatile)), operator,
                     builder.popExpr(token.location()))
             ));
         }
     }
 
-    record WriteShort(Token token) implements ProtoOperation {
+    record WriteShort(Token token, boolean isVolatile) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
             var location = builder.popExpr(token.location());
@@ -163,13 +162,13 @@ public interface ProtoOperation {
             }
 
             builder.add(new AstStatement.Expression(new AstExpression.Write(
-                    new AstExpression.DereferenceShort(location, "volatile "), "=",
+                    new AstExpression.DereferenceShort(location, builder.getAccessPrefix(isVolatile)), "=",
                     value
             )));
         }
     }
 
-    record WriteByte(Token token) implements ProtoOperation {
+    record WriteByte(Token token, boolean isVolatile) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
             var location = builder.popExpr(token.location());
@@ -180,7 +179,7 @@ public interface ProtoOperation {
             }
 
             builder.add(new AstStatement.Expression(new AstExpression.Write(
-                    new AstExpression.DereferenceByte(location, "volatile "), "=",
+                    new AstExpression.DereferenceByte(location, builder.getAccessPrefix(isVolatile)), "=",
                     value
             )));
         }
@@ -293,7 +292,7 @@ public interface ProtoOperation {
                 if (b != 0) {
                     builder.pushExpr(new AstExpression.Literal.Int(Integer.divideUnsigned(a, b)));
                 } else {
-                    token.error("division by zero");
+                    token.error(file.context, "division by zero");
                     builder.pushExpr(new AstExpression.Literal.Int(0));
                 }
             } else {
@@ -315,7 +314,7 @@ public interface ProtoOperation {
     record While(Token token, ProtoOperation condition, ProtoOperation body) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
-            var bodyBuilder = new StatementBuilder(builder.scope);
+            var bodyBuilder = new StatementBuilder(builder);
 
             condition.buildAst(bodyBuilder, file);
             var condExpr = bodyBuilder.popExpr(token.location());
@@ -361,14 +360,14 @@ public interface ProtoOperation {
                 return;
             }
 
-            var bodyBuilder = new StatementBuilder(builder.scope);
+            var bodyBuilder = new StatementBuilder(builder);
             trueBody.buildAst(bodyBuilder, file);
             var trueBody = bodyBuilder.buildBlock();
 
             AstStatement falseBody;
 
             if (this.falseBody != null) {
-                bodyBuilder = new StatementBuilder(builder.scope);
+                bodyBuilder = new StatementBuilder(builder);
                 this.falseBody.buildAst(bodyBuilder, file);
                 falseBody = bodyBuilder.buildBlock();
             } else {
@@ -445,7 +444,7 @@ public interface ProtoOperation {
     record Drop(Token token) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
-            builder.popExpr(token.location());
+            builder.dropExpr(token.location());
         }
     }
 
@@ -472,7 +471,7 @@ public interface ProtoOperation {
                 if (b != 0) {
                     builder.pushExpr(new AstExpression.Literal.Int(Integer.remainderUnsigned(a, b)));
                 } else {
-                    token.error("division by zero");
+                    token.error(file.context, "division by zero");
                     builder.pushExpr(new AstExpression.Literal.Int(0));
                 }
             } else {
@@ -489,7 +488,7 @@ public interface ProtoOperation {
             if (builder.popExpr(token.location()) instanceof AstExpression.Literal.Int(int size)) {
                 builder.add(new AstStatement.DeclareBuffer(sym, size));
             } else {
-                token.error("size must be constant");
+                token.error(file.context, "size must be constant");
             }
 
             builder.pushExpr(new AstExpression.Literal.Sym(sym));
@@ -525,9 +524,9 @@ public interface ProtoOperation {
                         )
                 ));
             } else if (def != null) {
-                name.error("don't know what to do with this kind of symbol");
+                name.error(file.context, "don't know what to do with this kind of symbol");
             } else {
-                name.error("unrecognized symbol '%s'".formatted(name.text()));
+                name.error(file.context, "unrecognized symbol '%s'".formatted(name.text()));
             }
         }
     }
@@ -679,7 +678,7 @@ public interface ProtoOperation {
             if (left instanceof AstExpression.Literal.Int(int a) && right instanceof AstExpression.Literal.Int(int b)) {
                 builder.pushExpr(a > b ? left : right);
             } else {
-                token.error("_max only works with constant values");
+                token.error(file.context, "_max only works with constant values");
             }
         }
     }
@@ -687,9 +686,7 @@ public interface ProtoOperation {
     record Dup(Token token) implements ProtoOperation {
         @Override
         public void buildAst(StatementBuilder builder, ProtoFile file) {
-            var value = builder.popExpr(token.location());
-            builder.pushExpr(value);
-            builder.pushExpr(value);
+            builder.dupExpr(token.location());
         }
     }
 }
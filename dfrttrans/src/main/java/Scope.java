@@ -3,10 +3,17 @@ import java.util.Map;
 
 public class Scope {
     public final Scope parent;
+    public final CompilationContext context;
     protected final Map<String, ProtoDefinition> definitions = new LinkedHashMap<>();
 
     public Scope(Scope parent) {
         this.parent = parent;
+        this.context = parent.context;
+    }
+
+    protected Scope(CompilationContext context) {
+        this.parent = null;
+        this.context = context;
     }
 
     public ProtoDefinition addOrReplace(ProtoDefinition definition) {
@@ -15,7 +22,7 @@ public class Scope {
 
     public void add(ProtoDefinition definition) {
         if (addOrReplace(definition) != null) {
-            definition.name.error("symbol '%s' is already defined in this scope".formatted(definition.name.text()));
+            definition.name.error(context, "symbol '%s' is already defined in this scope".formatted(definition.name.text()));
         }
     }
 
@@ -0,0 +1,111 @@
+import java.io.*;
+import java.net.ProtocolException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class Server {
+    private static final int REQUEST_TIMEOUT = 10;
+    private static final int MAX_ARGUMENTS = 4096;
+    private static final int MAX_STRING = 65536;
+
+    public static void run(Path socket) throws IOException {
+        Files.deleteIfExists(socket);
+
+        try (var server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+             var workers = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+             var timer = Executors.newSingleThreadScheduledExecutor()) {
+            server.bind(UnixDomainSocketAddress.of(socket));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                try {
+                    Files.deleteIfExists(socket);
+                } catch (IOException ignored) {
+                }
+            }));
+
+            while (true) {
+                var channel = server.accept();
+
+                workers.execute(() -> {
+                    try (channel) {
+                        handle(channel, timer);
+                    } catch (Throwable e) {
+                        System.err.printf("dfrttrans: %s%n", e);
+                    }
+                });
+            }
+        }
+    }
+
+    private static void handle(SocketChannel channel, ScheduledExecutorService timer) throws IOException {
+        var input = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+        var output = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+
+        // unix channels have no read timeout, so a client that never finishes
+        // its request gets its channel closed under the blocked read instead
+        var timeout = timer.schedule(() -> {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }, REQUEST_TIMEOUT, TimeUnit.SECONDS);
+
+        Path directory;
+        String[] args;
+
+        try {
+            directory = Path.of(readString(input));
+            args = new String[readLength(input, MAX_ARGUMENTS)];
+
+            for (int i = 0; i < args.length; i++) {
+                args[i] = readString(input);
+            }
+        } catch (ProtocolException | InvalidPathException e) {
+            var message = "dfrttrans: malformed job: %s%n".formatted(e.getMessage()).getBytes(StandardCharsets.UTF_8);
+            output.writeInt(2);
+            output.writeInt(message.length);
+            output.write(message);
+            output.flush();
+            return;
+        } finally {
+            timeout.cancel(false);
+        }
+
+        var buffer = new ByteArrayOutputStream();
+        var diagnostics = new PrintStream(buffer, true, StandardCharsets.UTF_8);
+        int status;
+
+        try {
+            status = Main.execute(directory, args, diagnostics);
+        } catch (Throwable e) {
+            diagnostics.printf("dfrttrans: %s%n", e);
+            status = 1;
+        }
+
+        output.writeInt(status);
+        output.writeInt(buffer.size());
+        buffer.writeTo(output);
+        output.flush();
+    }
+
+    private static int readLength(DataInputStream input, int limit) throws IOException {
+        int length = input.readInt();
+        if (length < 0 || length > limit) throw new ProtocolException("length " + length + " out of range");
+        return length;
+    }
+
+    private static String readString(DataInputStream input) throws IOException {
+        var data = new byte[readLength(input, MAX_STRING)];
+        input.readFully(data);
+        return new String(data, StandardCharsets.UTF_8);
+    }
+}
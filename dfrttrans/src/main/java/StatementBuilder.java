@@ -1,22 +1,51 @@
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 import java.util.Stack;
 
 public class StatementBuilder {
-    private static int TEMPORARIES = 0;
+    private static final int READS_MEMORY = 1;
+    private static final int VOLATILE = 2;
+    private static final int CALL = 4;
+
     private final List<AstStatement> statements = new ArrayList<>();
-    private final Stack<AstExpression> expressions = new Stack<>();
+    private final Stack<Operand> expressions = new Stack<>();
+    private final Set<AstSymbol> temporaries = Collections.newSetFromMap(new IdentityHashMap<>());
     public Scope scope;
+    public boolean volatileAccess;
 
     public StatementBuilder(Scope scope) {
         this.scope = scope;
+        this.volatileAccess = scope.context.volatileAccess;
+    }
+
+    public StatementBuilder(StatementBuilder parent) {
+        this.scope = parent.scope;
+        this.volatileAccess = parent.volatileAccess;
+    }
+
+    private record Operand(AstExpression expression, int effects) {
+    }
+
+    public String getAccessPrefix(boolean isVolatile) {
+        return isVolatile || volatileAccess ? "volatile " : "";
     }
 
     public String getTemporaryName() {
-        return "_dft%d".formatted(TEMPORARIES++);
+        return scope.context.getTemporaryName();
     }
 
     public AstStatement.Block buildBlock() {
+        for (var operand : expressions) {
+            if ((operand.effects & VOLATILE) != 0) {
+                statements.add(new AstStatement.Expression(operand.expression));
+            }
+        }
+
+        expressions.clear();
+
         if (statements.size() == 1 && statements.getFirst() instanceof AstStatement.Block block) {
             return block;
         }
@@ -25,34 +54,142 @@ public class StatementBuilder {
     }
 
     public void add(AstStatement statement) {
+        if (hasSideEffects(statement)) flush(READS_MEMORY | VOLATILE);
         statements.add(statement);
     }
 
     public void pushExpr(AstExpression expr) {
-        if (!(expr instanceof AstExpression.Literal)) {
-            var sym = new AstSymbol.Location.Variable(getTemporaryName(), false);
-            add(new AstStatement.DeclareVariable(sym, expr));
-            expr = new AstExpression.Dereference(new AstExpression.Literal.Sym(sym), "");
+        if (expr instanceof AstExpression.Literal) {
+            expressions.push(new Operand(expr, 0));
+            return;
+        }
+
+        if (expr instanceof AstExpression.BinaryOperator(var left, var operator, var right)
+                && (operator.equals("&&") || operator.equals("||")) && (effects(right) & VOLATILE) != 0) {
+            expr = new AstExpression.BinaryOperator(left, operator, materialize(right));
+        }
+
+        int effects = effects(expr);
+
+        if ((effects & CALL) != 0) {
+            flush(READS_MEMORY | VOLATILE);
+            expressions.push(new Operand(materialize(expr), 0));
+            return;
         }
 
-        expressions.push(expr);
+        if ((effects & VOLATILE) != 0) flush(VOLATILE);
+
+        if (isSigned(expr)) expr = new AstExpression.Convert(expr);
+
+        expressions.push(new Operand(expr, effects));
     }
 
-    public void pushPureExpr(AstExpression expr) {
-        expressions.push(expr);
+    public void pushTemporary(AstSymbol.Location.Variable sym) {
+        temporaries.add(sym);
+        expressions.push(new Operand(new AstExpression.Dereference(new AstExpression.Literal.Sym(sym), ""), 0));
     }
 
     public AstExpression maybePopExpr() {
-        return expressions.empty() ? null : expressions.pop();
+        return expressions.empty() ? null : expressions.pop().expression;
     }
 
     public AstExpression popExpr(Location errorLoc) {
         if (expressions.empty()) {
-            errorLoc.error("not enough operands");
+            errorLoc.error(scope.context, "not enough operands");
             return new AstExpression.Literal.Int(0);
         }
 
-        return expressions.pop();
+        return expressions.pop().expression;
+    }
+
+    public void dropExpr(Location errorLoc) {
+        if (expressions.empty()) {
+            errorLoc.error(scope.context, "not enough operands");
+            return;
+        }
+
+        var operand = expressions.pop();
+
+        if ((operand.effects & VOLATILE) != 0) {
+            statements.add(new AstStatement.Expression(operand.expression));
+        }
+    }
+
+    public void dupExpr(Location errorLoc) {
+        if (expressions.empty()) {
+            errorLoc.error(scope.context, "not enough operands");
+            expressions.push(new Operand(new AstExpression.Literal.Int(0), 0));
+        } else if (!(expressions.peek().expression instanceof AstExpression.Literal)) {
+            expressions.push(new Operand(materialize(expressions.pop().expression), 0));
+        }
+
+        expressions.push(expressions.peek());
+    }
+
+    private AstExpression materialize(AstExpression expr) {
+        var sym = new AstSymbol.Location.Variable(getTemporaryName(), false);
+        temporaries.add(sym);
+        statements.add(new AstStatement.DeclareVariable(sym, expr));
+        return new AstExpression.Dereference(new AstExpression.Literal.Sym(sym), "");
+    }
+
+    private void flush(int mask) {
+        for (int i = 0; i < expressions.size(); i++) {
+            var operand = expressions.get(i);
+
+            if ((operand.effects & mask) != 0) {
+                expressions.set(i, new Operand(materialize(operand.expression), 0));
+            }
+        }
+    }
+
+    private static boolean hasSideEffects(AstStatement statement) {
+        return switch (statement) {
+            case AstStatement.DeclareBuffer ignored -> false;
+            case AstStatement.DeclareVariable(var ignored, var initializer) ->
+                    initializer instanceof AstExpression.Call || initializer instanceof AstExpression.InitializerList;
+            default -> true;
+        };
+    }
+
+    private static boolean isSigned(AstExpression expr) {
+        return switch (expr) {
+            case AstExpression.SignedBinaryOperator ignored -> true;
+            case AstExpression.UnaryOperator(var operator, var ignored) -> operator.equals("!");
+            case AstExpression.BinaryOperator(var ignored0, var operator, var ignored1) -> switch (operator) {
+                case "<", ">", "<=", ">=", "==", "!=", "&&", "||" -> true;
+                default -> false;
+            };
+            default -> false;
+        };
+    }
+
+    private int effects(AstExpression expr) {
+        return switch (expr) {
+            case AstExpression.Literal ignored -> 0;
+            case AstExpression.Dereference(AstExpression.Literal.Sym(var value), var ignored) when temporaries.contains(value) -> 0;
+            case AstExpression.Dereference(AstExpression.Literal.Sym(AstSymbol.Location.Variable value), var ignored)
+                    when !value.name().equals("_dfs_argv") -> READS_MEMORY;
+            case AstExpression.Dereference(AstExpression.Literal.Sym(AstSymbol.Location.Table ignored0), var ignored1) ->
+                    READS_MEMORY;
+            case AstExpression.Dereference(var pointer, var prefix) -> memoryEffects(prefix) | effects(pointer);
+            case AstExpression.DereferenceShort(var pointer, var prefix) -> memoryEffects(prefix) | effects(pointer);
+            case AstExpression.DereferenceByte(var pointer, var prefix) -> memoryEffects(prefix) | effects(pointer);
+            case AstExpression.Convert(var value) -> effects(value);
+            case AstExpression.UnaryOperator(var ignored, var value) -> effects(value);
+            case AstExpression.BinaryOperator(var left, var ignored, var right) -> effects(left) | effects(right);
+            case AstExpression.SignedBinaryOperator(var left, var ignored, var right) -> effects(left) | effects(right);
+            case AstExpression.InitializerList(var values) -> {
+                int effects = 0;
+                for (var value : values) effects |= effects(value);
+                yield effects;
+            }
+            default -> CALL;
+        };
+    }
+
+    private static int memoryEffects(String prefix) {
+        return prefix.isEmpty() ? READS_MEMORY : READS_MEMORY | VOLATILE;
     }
 
     public static AstExpression.Literal buildLiteral(ProtoOperation operation, ProtoFile file, Location errorLoc) {
@@ -65,7 +202,7 @@ public class StatementBuilder {
         if (builder.statements.isEmpty() && builder.expressions.empty() && expr instanceof AstExpression.Literal literal) {
             return literal;
         } else {
-            errorLoc.error("value is not a constant");
+            errorLoc.error(file.context, "value is not a constant");
             return new AstExpression.Literal.Int(0);
         }
     }
@@ -1,5 +1,5 @@
 public record Token(TokenType type, String text, Location location) {
-    public void error(String message) {
-        location.error(message);
+    public void error(CompilationContext context, String message) {
+        location.error(context, message);
     }
 }
@@ -0,0 +1,131 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TokenStream {
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final Keyword[] KEYWORDS = Keyword.values();
+
+    private final List<String> paths = new ArrayList<>();
+    private byte[] types;
+    private byte[] keywords;
+    private int[] starts;
+    private int[] ends;
+    private int[] files;
+    private int[] lines;
+    private int[] columns;
+    private String[] texts;
+    private int count;
+
+    public TokenStream(int capacity) {
+        capacity = Math.max(capacity, 16);
+        types = new byte[capacity];
+        keywords = new byte[capacity];
+        starts = new int[capacity];
+        ends = new int[capacity];
+        files = new int[capacity];
+        lines = new int[capacity];
+        columns = new int[capacity];
+        texts = new String[capacity];
+    }
+
+    public int addPath(String path) {
+        paths.add(path);
+        return paths.size() - 1;
+    }
+
+    private void reserve(int extra) {
+        if (count + extra > types.length) {
+            int capacity = Math.max(types.length * 2, count + extra);
+            types = Arrays.copyOf(types, capacity);
+            keywords = Arrays.copyOf(keywords, capacity);
+            starts = Arrays.copyOf(starts, capacity);
+            ends = Arrays.copyOf(ends, capacity);
+            files = Arrays.copyOf(files, capacity);
+            lines = Arrays.copyOf(lines, capacity);
+            columns = Arrays.copyOf(columns, capacity);
+            texts = Arrays.copyOf(texts, capacity);
+        }
+    }
+
+    public void add(TokenType type, Keyword keyword, String text, int start, int end, int file, int line, int column) {
+        reserve(1);
+
+        types[count] = (byte) type.ordinal();
+        keywords[count] = (byte) (keyword != null ? keyword.ordinal() : -1);
+        starts[count] = start;
+        ends[count] = end;
+        files[count] = file;
+        lines[count] = line;
+        columns[count] = column;
+        texts[count] = text;
+        count += 1;
+    }
+
+    public TokenStream slice(int from, int to, int base) {
+        var slice = new TokenStream(to - from);
+        slice.count = to - from;
+        System.arraycopy(types, from, slice.types, 0, slice.count);
+        System.arraycopy(keywords, from, slice.keywords, 0, slice.count);
+        System.arraycopy(lines, from, slice.lines, 0, slice.count);
+        System.arraycopy(columns, from, slice.columns, 0, slice.count);
+        System.arraycopy(texts, from, slice.texts, 0, slice.count);
+
+        for (int i = 0; i < slice.count; i++) {
+            slice.starts[i] = starts[from + i] - base;
+            slice.ends[i] = ends[from + i] - base;
+        }
+
+        return slice;
+    }
+
+    public void append(TokenStream other, int base, int file) {
+        reserve(other.count);
+        System.arraycopy(other.types, 0, types, count, other.count);
+        System.arraycopy(other.keywords, 0, keywords, count, other.count);
+        System.arraycopy(other.lines, 0, lines, count, other.count);
+        System.arraycopy(other.columns, 0, columns, count, other.count);
+        System.arraycopy(other.texts, 0, texts, count, other.count);
+        Arrays.fill(files, count, count + other.count, file);
+
+        for (int i = 0; i < other.count; i++) {
+            starts[count + i] = other.starts[i] + base;
+            ends[count + i] = other.ends[i] + base;
+        }
+
+        count += other.count;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public TokenType type(int index) {
+        return TYPES[types[index]];
+    }
+
+    public Keyword keyword(int index) {
+        int keyword = keywords[index];
+        return keyword >= 0 ? KEYWORDS[keyword] : null;
+    }
+
+    public String text(int index) {
+        return texts[index];
+    }
+
+    public int start(int index) {
+        return starts[index];
+    }
+
+    public int end(int index) {
+        return ends[index];
+    }
+
+    public Location location(int index) {
+        return new Location(paths.get(files[index]), lines[index], columns[index]);
+    }
+
+    public Token token(int index) {
+        return new Token(type(index), texts[index], location(index));
+    }
+}
@@ -0,0 +1,62 @@
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+public class Translator {
+    private final boolean volatileAccess;
+    private final boolean privateRegisterArguments;
+    private final boolean readOnlyStrings;
+    private final boolean restat;
+    private final Path directory;
+    private final List<Path> registerArgumentRoots;
+
+    public Translator(boolean volatileAccess, boolean privateRegisterArguments, boolean readOnlyStrings, boolean restat, Path directory,
+                      List<Path> registerArgumentRoots) {
+        this.volatileAccess = volatileAccess;
+        this.privateRegisterArguments = privateRegisterArguments;
+        this.readOnlyStrings = readOnlyStrings;
+        this.restat = restat;
+        this.directory = directory;
+        this.registerArgumentRoots = registerArgumentRoots;
+    }
+
+    public int translate(Path input, String path, Path output, PrintStream diagnostics, Set<String> sources) throws IOException {
+        var stream = emit(input, path, diagnostics, sources);
+        if (stream == null) return 1;
+
+        stream.writeTo(output, restat);
+        return 0;
+    }
+
+    public Emitter emit(Path input, String path, PrintStream diagnostics, Set<String> sources) throws IOException {
+        var context = new CompilationContext(diagnostics, volatileAccess, privateRegisterArguments, readOnlyStrings, directory, registerArgumentRoots, sources);
+
+        ProtoFile proto = Parser.parse(Files.readAllBytes(input), path, context);
+
+        if (context.hasErrors()) return null;
+
+        AstFile file = proto.convertToAst();
+
+        if (context.hasErrors()) return null;
+
+        var stream = new Emitter();
+
+        for (var sym : file.symbols()) {
+            sym.print(stream, context);
+        }
+
+        for (var str : file.strings()) {
+            stream.print("__attribute__((section(").printString(str.section()).print("))) ");
+            str.printDefinition(stream);
+        }
+
+        for (var def : file.definitions()) {
+            stream.print("__attribute__((section(").printString(def.section()).print("))) ");
+            def.print(stream);
+        }
+
+        return stream;
+    }
+}
@@ -1,5 +1,3 @@
-import java.io.PrintStream;
-import java.nio.charset.StandardCharsets;
 import java.util.Set;
 
 public class Utils {
@@ -60,7 +58,14 @@ public class Utils {
     }
 
     private static boolean isNameReservedInC(String name) {
-        return name.startsWith("_df") || name.matches("_[_A-Z]") || RESERVED_NAMES.contains(name);
+        return name.startsWith("_df") || isUnderscoreReserved(name) || RESERVED_NAMES.contains(name);
+    }
+
+    private static boolean isUnderscoreReserved(String name) {
+        if (name.length() != 2 || name.charAt(0) != '_') return false;
+
+        char c = name.charAt(1);
+        return c == '_' || (c >= 'A' && c <= 'Z');
     }
 
     public static String unescapeString(String str) {
@@ -93,32 +98,7 @@ public class Utils {
         return text.toString();
     }
 
-    private static boolean isHexDigit(int value) {
+    public static boolean isHexDigit(int value) {
         return (value >= '0' && value <= '9') || (value >= 'a' && value <= 'f') || (value >= 'A') || (value <= 'Z');
     }
-
-    public static String escapeString(String str) {
-        var text = new StringBuilder("\"");
-        var bytes = str.getBytes(StandardCharsets.UTF_8);
-        var wasEscape = false;
-
-        for (int value : bytes) {
-            if (value >= 0x20 && value <= 0x7e && value != '"' && (!wasEscape || !isHexDigit(value))) {
-                text.append((char) value);
-                wasEscape = false;
-            } else {
-                text.append("\\x%02x".formatted(value));
-                wasEscape = true;
-            }
-        }
-
-        text.append("\"");
-        return text.toString();
-    }
-
-    public static void writeIndent(PrintStream stream, int indentLevel) {
-        for (int i = 0; i < indentLevel; i++) {
-            stream.print(INDENT);
-        }
-    }
 }
@@ -1,6 +1,3 @@
-INCLUDES := $(subst :, ,$(INCDIR))
-INCLUDEFILES := $(foreach incdir,$(INCLUDES),$(shell find $(incdir) -type f -name "*.h"))
-
 SFILES := $(foreach component,$(COMPONENTS),$(wildcard $(component)/$(ARCHITECTURE)/*.s))
 GFILES := $(foreach component,$(COMPONENTS),$(wildcard $(component)/$(ARCHITECTURE)/*.S))
 
@@ -20,9 +17,18 @@ endif
 
 FULLOUTPUTFILE = $(BUILDROOT)/$(OUTPUTFILE).$(ARCHITECTURE).$(CHKFRE)
 
+# out of date .df objects are only queued (and removed, so that everything
+# depending on them goes stale too); the stamp rule then translates the
+# whole queue in a single dragonc run before anything links
+DFBATCH := .dfbatch.$(ARCHITECTURE).$(CHKFRE)
+
 all: $(FULLOUTPUTFILE)
 
-$(FULLOUTPUTFILE): $(COBJ) $(OBJ) $(SOBJ) $(GOBJ)
+$(DFBATCH).stamp: $(OBJ)
+	$(DFC) -deps batch=$(DFBATCH) incdir=$(INCDIR) libdir=$(LIBDIR)
+	touch $@
+
+$(FULLOUTPUTFILE): $(DFBATCH).stamp $(COBJ) $(OBJ) $(SOBJ) $(GOBJ)
 	$(LNK) link $(LINKOPT) $(FULLOUTPUTFILE) $(PRELIBS) $(GOBJ) $(SOBJ) $(COBJ) $(OBJ) $(LIBS) -d $(DYLIBS)
 
 ifdef MOVEEXPR
@@ -46,8 +52,9 @@ $(1)/%.$$(ARCHITECTURE).$$(CHKFRE).o: $(1)/%.c $$(wildcard $(1)/*.h)
 	java -jar $(ELFCONVERT) $$@.elf.o $$@
 	rm $$@.elf.o
 
-$(1)/%.$$(ARCHITECTURE).$$(CHKFRE).o: $(1)/%.df $$(INCLUDEFILES) $$(wildcard $(1)/*.h)
-	$$(DFC) $$< $$@ incdir=$$(INCDIR) libdir=$$(LIBDIR)
+$(1)/%.$$(ARCHITECTURE).$$(CHKFRE).o: $(1)/%.df
+	echo $$< $$@ >> $$(DFBATCH)
+	rm -f $$@
 
 endef
 
@@ -63,5 +70,7 @@ $(foreach component,$(COMPONENTS), \
 %.$(ARCHITECTURE).$(CHKFRE).o: %.s
 	$(ASM) $< $@
 
+-include $(OBJ:=.d)
+
 cleanup:
-	rm -f ${OBJ} ${SOBJ} $(FULLOUTPUTFILE)
+	rm -f ${OBJ} $(OBJ:=.d) ${SOBJ} $(FULLOUTPUTFILE) $(DFBATCH) $(DFBATCH).stamp
@@ -18,6 +18,11 @@ local libdir = ""
 local target = "target=ctrans"
 local preprocargs = " "
 local asmout = false
+local nonvolatile = false
+local regparm
+local rodata = false
+local deps = false
+local batchfile
 
 local narg = {}
 
@@ -25,11 +30,22 @@ for k,v in ipairs(arg) do
 	if v == "-flat" then
 	elseif v == "-S" then
 		asmout = true
+	elseif v == "-nonvolatile" then
+		nonvolatile = true
+	elseif v == "-rodata" then
+		rodata = true
+	elseif v == "-deps" then
+		deps = true
+	elseif v:sub(1,6) == "batch=" then
+		batchfile = v:sub(7)
 	elseif v:sub(1,7) == "incdir=" then
 		incdir = v
 	elseif v:sub(1,7) == "libdir=" then
 		libdir = v
+	elseif v:sub(1,8) == "regparm=" then
+		regparm = v:sub(9)
 	elseif v:sub(1,7) == "target=" then
+		target = v
 	elseif v:sub(1,7) == "format=" then
 	elseif v:find("=") then
 		preprocargs = preprocargs..v.." "
@@ -43,27 +59,128 @@ local function printhelp()
 	print("compiler for dragonfruit to xloff/xr17032 object files")
 	print("(or flat binaries with the -flat argument)")
 	print("usage: dragonc.lua [source1 source2 ...] [dest1 dest2 ...]")
+	print("       dragonc.lua batch=file")
 end
 
 local sourcef = {}
 local destf = {}
 
-if (#narg < 2) or (math.floor(#narg/2) ~= #narg/2) then
-	print("argument mismatch")
-	printhelp()
-	return
-end
+-- a batch file holds "source dest" lines appended by make for every
+-- out of date object, so a whole project is translated in one go; it is
+-- only emptied once everything in it translated, so a failed run is
+-- retried in full
+if batchfile then
+	local f = io.open(batchfile, "r")
+
+	if not f then
+		return
+	end
+
+	local seen = {}
+
+	for line in f:lines() do
+		local src, dest = line:match("^(%S+)%s+(%S+)$")
+
+		if src and not seen[dest] then
+			seen[dest] = true
+			sourcef[#sourcef + 1] = src
+			destf[#destf + 1] = dest
+		end
+	end
 
-for i = 1, #narg/2 do
-	sourcef[#sourcef + 1] = narg[i]
-	destf[#destf + 1] = narg[#narg/2 + i]
+	f:close()
+
+	if #narg > 0 then
+		print("argument mismatch")
+		printhelp()
+		os.exit(1)
+	end
+
+	if #sourcef == 0 then
+		return
+	end
+else
+	if (#narg < 2) or (math.floor(#narg/2) ~= #narg/2) then
+		print("argument mismatch")
+		printhelp()
+		return
+	end
+
+	for i = 1, #narg/2 do
+		sourcef[#sourcef + 1] = narg[i]
+		destf[#destf + 1] = narg[#narg/2 + i]
+	end
 end
 
 local lua = sd.."lua.sh "
 local preproc = lua..sd.."preproc/preproc.lua "..incdir.." "..libdir.." "..preprocargs
 local dragonc = "java -jar "..os.getenv("DFRTTRANS").." "
-local asm = os.getenv("CC").." -ffreestanding -fno-asynchronous-unwind-tables -fno-pie -fno-stack-protector -nostdinc -std=gnu99 -O3 -c -xc -o "
-local elfconv = "java -jar "..os.getenv("ELFCONVERT").." "
+local cc = os.getenv("CC").." -ffreestanding -fno-asynchronous-unwind-tables -fno-pie -fno-stack-protector -nostdinc -std=gnu99 -O3"
+local transopts = ""
+local convopts = ""
+
+-- plain loads and stores of different widths may alias each other,
+-- so gcc must not assume otherwise once they lose their volatile
+if nonvolatile then
+	transopts = transopts.."--nonvolatile "
+	cc = cc.." -fno-strict-aliasing"
+end
+
+-- regparm is an x86 attribute. private functions whose address is never
+-- taken can always use it; with regparm=DIR[:DIR] so does everything
+-- declared under those directories, which must then hold nothing that
+-- another image, or assembly, calls or is called through
+if target == "target=i386" then
+	transopts = transopts.."--private-regparm "
+
+	if regparm then
+		transopts = transopts.."--regparm="..regparm.." "
+	end
+elseif regparm then
+	print("dragonc: regparm= only applies to target=i386, ignoring it")
+end
+
+-- constant data and rosection strings go to their own read-only rodata
+-- section instead of text; the image must then be moved with a layout
+-- that places it
+if rodata then
+	convopts = convopts.."--rodata "
+end
+
+-- with a translation server running (dfrttrans --server $DFRTTRANS_SOCKET),
+-- hand the jobs to it through the native client instead of paying for a
+-- cold JVM every time
+local socket = os.getenv("DFRTTRANS_SOCKET")
+local client = os.getenv("DFRTCLIENT")
+
+if not client then
+	socket = nil
+end
+
+if socket then
+	dragonc = client.." "..socket.." "
+end
+
+-- write dest.d next to every dest, naming the source and each header
+-- the preprocessor pulled in, for make to include
+if deps then
+	transopts = transopts.."--deps "
+end
+
+-- with a cache directory set, identical inputs translated with the same
+-- tools and options are copied out of it instead of being redone
+local cache = os.getenv("DFRTTRANS_CACHE")
+
+if cache then
+	transopts = transopts.."--cache="..cache.." "
+end
+
+-- unless only the C is wanted, dfrttrans pipes it straight into the
+-- compiler and converts the object itself; the .c never reaches the
+-- disk and the ELF object only lives in a temporary file
+if not asmout then
+	transopts = transopts.."--cc='"..cc.."' "..convopts
+end
 
 local dx = 0
 
@@ -79,51 +196,55 @@ local function getfilename(p)
 	return p:sub(qp)
 end
 
-for k,v in ipairs(sourcef) do
-	local ed = getdirectory(v)
-
-	local pout = ed..".__out"..getfilename(v)..".pp "
-
-	local eout
-	local cout
+local pouts = {}
 
-	if not asmout then
-		eout = ed..".__out"..getfilename(v)..".c "
-		cout = ed..".__out"..getfilename(v)..".o"
-	else
-		eout = destf[k]
-		cout = destf[k]
+local function removeall(files)
+	for k,v in ipairs(files) do
+		os.execute("rm -f "..v)
 	end
+end
+
+for k,v in ipairs(sourcef) do
+	local ed = getdirectory(v)
 
-	local err
+	pouts[k] = ed..".__out"..getfilename(v)..".pp "
 
 	-- is there a better way to do this? probably.
-	err = os.execute(preproc..v.." "..pout)
+	local err = os.execute(preproc..v.." "..pouts[k])
 
 	if not err or (err > 0) then
-		os.execute("rm -f "..pout)
+		removeall(pouts)
 		os.exit(1)
 	end
+end
 
-	err = os.execute(dragonc..pout.." "..eout)
+-- translate (and compile) every source in one JVM unless a server is
+-- already warm
 
-	os.execute("rm -f "..pout)
+local err
 
-	if not err or (err > 0) then os.exit(1) end
+if socket then
+	for k,v in ipairs(pouts) do
+		err = os.execute(dragonc..transopts..v.." "..destf[k])
 
-	if asmout then
-		return
+		if not err or (err > 0) then break end
 	end
+else
+	local batch = dragonc.."--batch "..transopts
 
-	err = os.execute(asm..cout.." "..eout)
-
-	os.execute("rm -f "..eout)
+	for k,v in ipairs(pouts) do
+		batch = batch.." "..v.." "..destf[k]
+	end
 
-	if not err or (err > 0) then os.exit(1) end
+	err = os.execute(batch)
+end
 
-	err = os.execute(elfconv..cout.." "..destf[k])
+removeall(pouts)
 
-	os.execute("rm -f "..cout)
+if not err or (err > 0) then
+	os.exit(1)
+end
 
-	if not err or (err > 0) then os.exit(1) end
+if batchfile then
+	io.open(batchfile, "w"):close()
 end
@@ -284,7 +284,11 @@ elseif command == "move" then
         arg[3] = arg[4]
     elseif arg[3] == "mintia" then
         image.pagealignrequired = 4096
-        arg[3] = "text=0x100000,data=text+text_size+align,bss=data+data_size+align"
+        if image.sectionsbyname["rodata"] then
+            arg[3] = "text=0x100000,rodata=text+text_size+align,data=rodata+rodata_size+align,bss=data+data_size+align"
+        else
+            arg[3] = "text=0x100000,data=text+text_size+align,bss=data+data_size+align"
+        end
     end
 
     local expr = explode(",", arg[3])